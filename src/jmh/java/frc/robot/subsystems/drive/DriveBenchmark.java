@@ -0,0 +1,55 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Drive's per-loop work with stub IO: a full periodic, which is dominated by odometry integration,
+ * and the kinematics in runVelocity. AdvantageKit isn't started, so logging calls return
+ * immediately and only the drive code itself is measured.
+ */
+@State(Scope.Benchmark)
+public class DriveBenchmark {
+  // 250 Hz odometry read by a 50 Hz loop
+  private static final int SAMPLES_PER_CYCLE = 5;
+  private static final double SAMPLE_PERIOD_SECONDS = 0.004;
+
+  @Param({"true", "false"})
+  public boolean gyroConnected;
+
+  private Drive drive;
+  private final ChassisSpeeds[] speeds = new ChassisSpeeds[64];
+  private int speedIndex = 0;
+
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    drive =
+        new Drive(
+            new StubGyroIO(gyroConnected, SAMPLES_PER_CYCLE, SAMPLE_PERIOD_SECONDS),
+            new StubModuleIO(SAMPLES_PER_CYCLE, SAMPLE_PERIOD_SECONDS),
+            new StubModuleIO(SAMPLES_PER_CYCLE, SAMPLE_PERIOD_SECONDS),
+            new StubModuleIO(SAMPLES_PER_CYCLE, SAMPLE_PERIOD_SECONDS),
+            new StubModuleIO(SAMPLES_PER_CYCLE, SAMPLE_PERIOD_SECONDS));
+    for (int i = 0; i < speeds.length; i++) {
+      double angle = 2.0 * Math.PI * i / speeds.length;
+      speeds[i] = new ChassisSpeeds(3.0 * Math.cos(angle), 3.0 * Math.sin(angle), Math.sin(angle));
+    }
+  }
+
+  @Benchmark
+  public void periodic() {
+    drive.periodic();
+  }
+
+  @Benchmark
+  public void runVelocity() {
+    speedIndex = (speedIndex + 1) % speeds.length;
+    drive.runVelocity(speeds[speedIndex]);
+  }
+}
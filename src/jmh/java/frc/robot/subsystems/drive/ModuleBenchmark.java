@@ -0,0 +1,42 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.generated.TunerConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Module.runSetpoint, which optimizes and cosine scales each setpoint before sending it to the IO.
+ * Setpoints sweep all the way around so about half of them get flipped by the optimization.
+ */
+@State(Scope.Benchmark)
+public class ModuleBenchmark {
+  private static final int SETPOINTS = 72;
+
+  private Module module;
+  private final Rotation2d[] angles = new Rotation2d[SETPOINTS];
+  private final SwerveModuleState state = new SwerveModuleState();
+  private int index = 0;
+
+  @Setup
+  public void setup() {
+    module = new Module(new StubModuleIO(5, 0.004), 0, TunerConstants.FrontLeft);
+    module.periodic(); // Give the module a measured angle to optimize against
+    for (int i = 0; i < SETPOINTS; i++) {
+      angles[i] = Rotation2d.fromDegrees(i * 360.0 / SETPOINTS);
+    }
+  }
+
+  @Benchmark
+  public SwerveModuleState runSetpoint() {
+    index = (index + 1) % SETPOINTS;
+    // runSetpoint mutates the state, so reset it instead of allocating a new one
+    state.speedMetersPerSecond = 3.0;
+    state.angle = angles[index];
+    module.runSetpoint(state);
+    return state;
+  }
+}
@@ -0,0 +1,103 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * SwervePoseEstimator against the WPILib SwerveDrivePoseEstimator it replaced, fed the same
+ * odometry samples and vision measurements.
+ */
+@State(Scope.Benchmark)
+public class PoseEstimatorBenchmark {
+  private static final double SAMPLE_PERIOD_SECONDS = 0.004;
+  // Vision measurements arrive about one camera frame behind the latest odometry
+  private static final double VISION_LATENCY_SECONDS = 0.03;
+
+  private final SwerveModulePosition[] positions = {
+    new SwerveModulePosition(),
+    new SwerveModulePosition(),
+    new SwerveModulePosition(),
+    new SwerveModulePosition()
+  };
+  private final Rotation2d[] angles = new Rotation2d[360];
+  private final Matrix<N3, N1> visionStdDevs = VecBuilder.fill(0.5, 0.5, 1.0);
+  private final Pose2d visionPose = new Pose2d(1.0, 1.0, new Rotation2d());
+
+  private SwervePoseEstimator estimator;
+  private SwerveDrivePoseEstimator wpilibEstimator;
+  private double timestamp = 0.0;
+  private int step = 0;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < angles.length; i++) {
+      angles[i] = Rotation2d.fromDegrees(i);
+    }
+    estimator =
+        new SwervePoseEstimator(Drive.getModuleTranslations(), 0.0, positions, new Pose2d());
+    wpilibEstimator =
+        new SwerveDrivePoseEstimator(
+            new SwerveDriveKinematics(Drive.getModuleTranslations()),
+            new Rotation2d(),
+            positions,
+            new Pose2d());
+    // Fill both estimators' histories so vision measurements have samples to land between
+    for (int i = 0; i < 100; i++) {
+      advance();
+      estimator.updateWithTime(timestamp, angles[step].getRadians(), positions);
+      wpilibEstimator.updateWithTime(timestamp, angles[step], positions);
+    }
+  }
+
+  /** Moves every module forward a little and turns the robot a degree. */
+  private void advance() {
+    timestamp += SAMPLE_PERIOD_SECONDS;
+    step = (step + 1) % angles.length;
+    for (SwerveModulePosition position : positions) {
+      position.distanceMeters += 0.01;
+      position.angle = angles[step];
+    }
+  }
+
+  @Benchmark
+  public SwervePoseEstimator update() {
+    advance();
+    estimator.updateWithTime(timestamp, angles[step].getRadians(), positions);
+    return estimator;
+  }
+
+  @Benchmark
+  public SwerveDrivePoseEstimator updateWpilib() {
+    advance();
+    wpilibEstimator.updateWithTime(timestamp, angles[step], positions);
+    return wpilibEstimator;
+  }
+
+  @Benchmark
+  public SwervePoseEstimator updateWithVision() {
+    advance();
+    estimator.updateWithTime(timestamp, angles[step].getRadians(), positions);
+    estimator.addVisionMeasurement(visionPose, timestamp - VISION_LATENCY_SECONDS, visionStdDevs);
+    return estimator;
+  }
+
+  @Benchmark
+  public SwerveDrivePoseEstimator updateWithVisionWpilib() {
+    advance();
+    wpilibEstimator.updateWithTime(timestamp, angles[step], positions);
+    wpilibEstimator.addVisionMeasurement(
+        visionPose, timestamp - VISION_LATENCY_SECONDS, visionStdDevs);
+    return wpilibEstimator;
+  }
+}
@@ -0,0 +1,75 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * The filter chain each camera worker runs on an estimate, and the standard deviations it builds
+ * for the ones that pass. The estimates are a mix that passes and fails at different filters, so
+ * both early and late rejections are measured.
+ */
+@State(Scope.Benchmark)
+public class VisionFilterBenchmark {
+  private final List<EstimatedRobotPose> estimates = new ArrayList<>();
+  private final Vision.EstimateMetrics metrics = new Vision.EstimateMetrics();
+  private int index = 0;
+
+  @Setup
+  public void setup() {
+    // Passes every filter
+    estimates.add(estimate(new Pose3d(3.0, 4.0, 0.0, new Rotation3d()), 3, 0.6, 0.1));
+    // Rejected at the first filter
+    estimates.add(estimate(new Pose3d(3.0, 4.0, 0.0, new Rotation3d()), 1, 0.6, 0.1));
+    // Rejected off the field
+    estimates.add(estimate(new Pose3d(-1.0, 4.0, 0.0, new Rotation3d()), 2, 0.6, 0.1));
+    // Rejected for ambiguity after the per-target loop
+    estimates.add(estimate(new Pose3d(3.0, 4.0, 0.0, new Rotation3d()), 4, 0.6, 0.4));
+    // Rejected at the last filter
+    estimates.add(estimate(new Pose3d(3.0, 4.0, 0.0, new Rotation3d(0.0, 0.5, 0.0)), 2, 0.6, 0.1));
+  }
+
+  private static EstimatedRobotPose estimate(
+      Pose3d pose, int tagCount, double distanceMeters, double ambiguity) {
+    List<PhotonTrackedTarget> targets = new ArrayList<>();
+    Transform3d cameraToTarget =
+        new Transform3d(distanceMeters, 0.0, 0.0, new Rotation3d(0.0, 0.0, Math.PI));
+    for (int i = 0; i < tagCount; i++) {
+      targets.add(
+          new PhotonTrackedTarget(
+              0.0,
+              0.0,
+              1.0,
+              0.0,
+              17 + i,
+              -1,
+              -1.0f,
+              cameraToTarget,
+              cameraToTarget,
+              ambiguity,
+              List.of(),
+              List.of()));
+    }
+    return new EstimatedRobotPose(pose, 0.0, targets, PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR);
+  }
+
+  @Benchmark
+  public Object check() {
+    index = (index + 1) % estimates.size();
+    EstimatedRobotPose estimate = estimates.get(index);
+    Vision.Rejection rejection = Vision.check(estimate, metrics);
+    if (rejection != null) {
+      return rejection;
+    }
+    return Vision.generatePoseEstimate(estimate, metrics);
+  }
+}
@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+import frc.robot.util.Elastic.Notification;
+import frc.robot.util.Elastic.Notification.NotificationLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sending a fault notification by serializing it with Jackson each time, as Elastic does, against
+ * publishing a precompiled template's JSON. Both encoding alone and encoding plus the
+ * NetworkTables publish are measured, since the publish is a fixed cost either way.
+ */
+@State(Scope.Benchmark)
+public class NotificationBenchmark {
+  private NotificationTemplate template;
+
+  @Setup
+  public void setup() {
+    template = NotificationTemplate.precompiled(createNotification());
+  }
+
+  private static Notification createNotification() {
+    return new Notification(
+        NotificationLevel.ERROR, "Robot/Drive/Module0/turn talon fault", "DeviceTemp fault");
+  }
+
+  @Benchmark
+  public String serialize() {
+    return Elastic.toJson(createNotification());
+  }
+
+  @Benchmark
+  public String precompiled() {
+    return template.getJson();
+  }
+
+  @Benchmark
+  public void serializeAndPublish() {
+    Elastic.sendNotification(createNotification());
+  }
+
+  @Benchmark
+  public void publishPrecompiled() {
+    Elastic.sendNotificationJson(template.getJson());
+  }
+}
@@ -0,0 +1,66 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.LocalADStar;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Plan latency of DistanceFieldPathfinder's grid search against PathPlanner's LocalADStar, on the
+ * deployed navgrid.json, cycling through routes across the field. LocalADStar plans on its own
+ * thread, so its time is from setting the goal until the path is ready, which is what a
+ * pathfinding command waits for. Allocation per plan comes from the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathfinderBenchmark {
+  private static final Translation2d[][] ROUTES = {
+    {new Translation2d(1.5, 1.0), new Translation2d(15.0, 7.0)},
+    {new Translation2d(2.0, 7.0), new Translation2d(5.5, 2.5)},
+    {new Translation2d(7.0, 4.0), new Translation2d(12.0, 4.0)},
+    {new Translation2d(15.0, 1.0), new Translation2d(3.0, 4.0)},
+    {new Translation2d(8.0, 0.8), new Translation2d(8.5, 7.5)},
+  };
+  private static final PathConstraints CONSTRAINTS = new PathConstraints(4.5, 3.5, 7, 10);
+  private static final GoalEndState GOAL_END_STATE = new GoalEndState(0.0, new Rotation2d());
+
+  private DistanceFieldPathfinder.GridSearch gridSearch;
+  private LocalADStar adStar;
+  private int route = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    gridSearch = new DistanceFieldPathfinder.GridSearch(NavGrid.fromDeploy());
+    adStar = new LocalADStar();
+  }
+
+  @Benchmark
+  public List<Translation2d> gridSearch() {
+    route = (route + 1) % ROUTES.length;
+    return gridSearch.findPath(ROUTES[route][0], ROUTES[route][1]);
+  }
+
+  @Benchmark
+  public PathPlannerPath localADStar() {
+    route = (route + 1) % ROUTES.length;
+    adStar.setStartPosition(ROUTES[route][0]);
+    adStar.setGoalPosition(ROUTES[route][1]);
+    while (!adStar.isNewPathAvailable()) {
+      Thread.onSpinWait();
+    }
+    return adStar.getCurrentPath(CONSTRAINTS, GOAL_END_STATE);
+  }
+}
@@ -71,6 +71,12 @@ public final class Constants {
     public static final PIDController tipControllerX = new PIDController(0.25, 0, 0.1);
     public static final PIDController tipControllerY = new PIDController(0.25, 0, 0.1);
     public static final Force tipDeadband = Newtons.of(3);
+
+    // Real-time priority (1-99) for the odometry sampling thread, 0 leaves it non-real-time
+    public static final int ODOMETRY_THREAD_PRIORITY = 50;
+
+    // Pathfind with DistanceFieldPathfinder instead of PathPlanner's LocalADStar
+    public static final boolean USE_DISTANCE_FIELD_PATHFINDER = false;
   }
 
   public static class VisionConstants {
@@ -103,6 +109,9 @@ public final class Constants {
             new Translation3d(camChassisXOffset, -camChassisYOffset, camChassisZOffset),
             new Rotation3d(0, kCameraPitchRadians, 0));
 
+    // How often each camera's background worker checks for new results
+    public static final double kCameraPollPeriodSeconds = 0.01;
+
     public static final Matrix<N3, N1> kMultiTagStdDevs =
         VecBuilder.fill(0.5, 0.5, Double.POSITIVE_INFINITY);
 
@@ -16,6 +16,8 @@ package frc.robot;
 import edu.wpi.first.wpilibj.Threads;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.util.FaultRegistry;
+import frc.robot.util.NotificationDispatcher;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
@@ -94,6 +96,10 @@ public class Robot extends LoggedRobot {
     // This must be called from the robot's periodic block in order for anything in
     // the Command-based framework to work.
     CommandScheduler.getInstance().run();
+    robotContainer.logTargetPreview();
+    // Roll up the faults subsystems updated this loop
+    FaultRegistry.getInstance().update();
+    NotificationDispatcher.getInstance().logMetrics();
 
     // Return to normal thread priority
     Threads.setCurrentThreadPriority(false, 10);
@@ -26,6 +26,7 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.commands.ApproachPlanner;
 import frc.robot.commands.AutoAim;
 import frc.robot.commands.DriveCommands;
 import frc.robot.commands.SnapToTarget;
@@ -37,6 +38,9 @@ import frc.robot.subsystems.drive.ModuleIO;
 import frc.robot.subsystems.drive.ModuleIOSim;
 import frc.robot.subsystems.drive.ModuleIOTalonFX;
 import frc.robot.subsystems.vision.Vision;
+import frc.robot.util.PathCache;
+import java.util.Optional;
+import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
 /**
@@ -49,6 +53,7 @@ public class RobotContainer {
   // Subsystems
   private final Drive drive;
   private final Vision vision;
+  private final ApproachPlanner approachPlanner;
 
   // Controller
   private final CommandXboxController controller = new CommandXboxController(0);
@@ -94,6 +99,7 @@ public class RobotContainer {
     }
 
     vision = new Vision(drive::updateEstimates);
+    approachPlanner = new ApproachPlanner(drive);
 
     // Set up auto routines
     autoChooser = new LoggedDashboardChooser<>("Auto Choices", AutoBuilder.buildAutoChooser());
@@ -114,6 +120,9 @@ public class RobotContainer {
     autoChooser.addOption(
         "Drive SysId (Dynamic Reverse)", drive.sysIdDynamic(SysIdRoutine.Direction.kReverse));
 
+    // Generate paths up front so pressing a button doesn't wait on path generation
+    SnapToTarget.warmPathCache();
+
     // Configure the button bindings
     configureButtonBindings();
   }
@@ -137,7 +146,7 @@ public class RobotContainer {
     controller.b().whileTrue(new AutoAim(drive, vision, controller));
 
     // Automatically align to April Tag based on pose data
-    controller.y().onTrue(new SnapToTarget(drive));
+    controller.y().onTrue(new SnapToTarget(drive, approachPlanner));
 
     // Switch to X pattern when X button is pressed
     controller.x().onTrue(Commands.runOnce(drive::stopWithX, drive));
@@ -158,6 +167,19 @@ public class RobotContainer {
     drive.runVelocity(drive.calculateTipCorrection());
   }
 
+  /**
+   * Logs the pose SnapToTarget would drive to from here, for a live preview on the dashboard, and
+   * how well its path planning is doing.
+   */
+  public void logTargetPreview() {
+    Optional<Pose2d> preview = SnapToTarget.getClosestScoringPose(drive.getPose());
+    if (preview.isPresent()) {
+      Logger.recordOutput("SnapToTarget/Preview", preview.get());
+    }
+    PathCache.getInstance().logMetrics();
+    approachPlanner.logMetrics();
+  }
+
   /**
    * Use this to pass the autonomous command to the main {@link Robot} class.
    *
@@ -0,0 +1,75 @@
+package frc.robot.commands;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.subsystems.drive.Drive;
+import java.util.Optional;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Keeps a SnapToTarget path ready in the background. A few times a second it predicts the scoring
+ * target from the robot's latest pose and plans a path to it, including the ideal trajectory, so
+ * pressing the button can start following on the next loop instead of planning first.
+ */
+public class ApproachPlanner {
+  private static final double PERIOD_SECONDS = 0.1;
+  // A ready path is only used if the robot is still this close to where it was planned from
+  private static final double MAX_START_ERROR_METERS = 0.3;
+  // The path starts along the heading it was planned from, so the robot must still be close to it
+  private static final double MAX_START_HEADING_ERROR_RADIANS = Math.toRadians(10.0);
+
+  private record Plan(Pose2d start, Pose2d target, PathPlannerPath path) {}
+
+  private final Drive drive;
+  private final Notifier notifier = new Notifier(this::replan);
+  private volatile Plan plan = null;
+  private long readyHits = 0;
+  private long readyMisses = 0;
+
+  public ApproachPlanner(Drive drive) {
+    this.drive = drive;
+    notifier.setName("ApproachPlanner");
+    notifier.startPeriodic(PERIOD_SECONDS);
+  }
+
+  /** Runs on the notifier thread. */
+  private void replan() {
+    Pose2d start = drive.getPublishedPose();
+    Optional<Pose2d> target = SnapToTarget.getClosestScoringPose(start);
+    if (target.isEmpty()) {
+      plan = null; // No alliance yet, so no target
+      return;
+    }
+    // Planned outside the cache, so throwaway starts don't crowd it out and the trajectory is
+    // generated on a path no other thread can see until the plan is published
+    PathPlannerPath path = SnapToTarget.buildPath(start, target.get());
+    path.getIdealTrajectory(Drive.PP_CONFIG);
+    plan = new Plan(start, target.get(), path);
+  }
+
+  /**
+   * Returns the ready path if it was planned from near the given pose and heading to the target
+   * that would be picked from there, otherwise null. Must only be called from the main thread.
+   */
+  public PathPlannerPath getReadyPath(Pose2d drivePose, Pose2d target) {
+    Plan current = plan;
+    if (current != null
+        && current.target().equals(target)
+        && current.start().getTranslation().getDistance(drivePose.getTranslation())
+            < MAX_START_ERROR_METERS
+        && Math.abs(current.start().getRotation().minus(drivePose.getRotation()).getRadians())
+            < MAX_START_HEADING_ERROR_RADIANS) {
+      readyHits++;
+      return current.path();
+    }
+    readyMisses++;
+    return null;
+  }
+
+  /** Logs how often a press found a ready path. */
+  public void logMetrics() {
+    Logger.recordOutput("ApproachPlanner/ReadyHits", readyHits);
+    Logger.recordOutput("ApproachPlanner/ReadyMisses", readyMisses);
+  }
+}
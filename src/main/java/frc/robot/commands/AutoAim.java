@@ -54,7 +54,7 @@ public class AutoAim extends Command {
     if (bestTaggies != null) {
       if (bestTaggies.size() != 0) {
         TagInfo tagInfo = bestTaggies.get(bestTaggies.size() - 1);
-        target = tagInfo.tagPose().get();
+        target = tagInfo.tagPose();
       }
     }
 
@@ -1,17 +1,11 @@
 package frc.robot.commands;
 
 import com.pathplanner.lib.auto.AutoBuilder;
-import com.pathplanner.lib.path.GoalEndState;
-import com.pathplanner.lib.path.IdealStartingState;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
-import com.pathplanner.lib.path.Waypoint;
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
@@ -19,83 +13,132 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.Constants.VisionConstants;
 import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.vision.AprilTagTable;
+import frc.robot.util.PathCache;
+import frc.robot.util.ScoringPoseIndex;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 /** Using current pose, goes to nearest known target based on field layout */
 public class SnapToTarget extends Command {
+  // Reef tags for each alliance
+  private static final int[] BLUE_SCORING_TAGS = {17, 18, 19, 20, 21, 22};
+  private static final int[] RED_SCORING_TAGS = {6, 7, 8, 9, 10, 11};
+  private static final double INDEX_CELL_SIZE = 1.0; // meters
+  // Meters of extra travel worth avoiding a radian of turning
+  private static final double HEADING_WEIGHT = 0.3;
+  private static final PathConstraints CONSTRAINTS =
+      new PathConstraints(4.5, 3.5, 7, 10); // TODO estimated values fix
+  // Distances out along each tag's normal to pre-generate approach paths from
+  private static final double[] WARM_APPROACH_DISTANCES = {1.0, 1.5, 2.0};
+
+  private static final ScoringPoseIndex BLUE_SCORING_POSES = buildIndex(BLUE_SCORING_TAGS);
+  private static final ScoringPoseIndex RED_SCORING_POSES = buildIndex(RED_SCORING_TAGS);
+
   private final Drive drive;
+  private final ApproachPlanner planner;
+  private boolean noTarget = false;
 
-  public SnapToTarget(Drive drive) {
+  public SnapToTarget(Drive drive, ApproachPlanner planner) {
     this.drive = drive;
+    this.planner = planner;
     addRequirements(drive);
   }
 
   @Override
   public void initialize() {
     Pose2d drivePose = drive.getPose();
-    Pose2d scorePose = getClosestScoringPose(drivePose);
-    // make path between start and end pose on the fly
-    PathConstraints constraints = new PathConstraints(4.5, 3.5, 7, 10); // TODO estimated values fix
-    // final pose should be slightly offset from april tag position
-    Pose2d finalPose =
-        scorePose.plus(
-            new Transform2d(
-                VisionConstants.tagXOffset.in(Units.Meters)
-                    * (DriverStation.getAlliance().get() == Alliance.Blue ? 1 : -1),
-                VisionConstants.tagYOffset.in(Units.Meters),
-                new Rotation2d()));
-    List<Waypoint> waypoints = PathPlannerPath.waypointsFromPoses(drivePose, finalPose);
-    PathPlannerPath path =
-        new PathPlannerPath(
-            waypoints,
-            constraints,
-            new IdealStartingState(0, drivePose.getRotation()),
-            new GoalEndState(0.0, Rotation2d.fromDegrees(0.0)));
+    Optional<Pose2d> target = getClosestScoringPose(drivePose);
+    // without an alliance there's nothing to snap to, so end instead of holding the drive
+    noTarget = target.isEmpty();
+    if (noTarget) {
+      return;
+    }
+    Pose2d scorePose = target.get();
+    // use the path planned in the background if it still applies, otherwise plan one now
+    PathPlannerPath path = planner.getReadyPath(drivePose, scorePose);
+    if (path == null) {
+      path = planPath(drivePose, scorePose);
+    }
 
     Command pathFollow = AutoBuilder.followPath(path);
     CommandScheduler.getInstance().schedule(pathFollow);
   }
 
-  public Pose2d getClosestScoringPose(Pose2d drivePose) {
-    AprilTagFieldLayout layout = VisionConstants.aprilTagFieldLayout;
+  @Override
+  public boolean isFinished() {
+    return noTarget;
+  }
+
+  /**
+   * Returns the closest scoring pose for the robot's alliance, weighing how far the robot would
+   * have to turn to face the tag, or nothing if the alliance isn't known yet. Cheap enough to call
+   * every loop.
+   */
+  public static Optional<Pose2d> getClosestScoringPose(Pose2d drivePose) {
     Optional<Alliance> alliance = DriverStation.getAlliance();
-    if (alliance.isPresent()) {
-      List<Pose2d> scoringPoses;
-      int startTagId = alliance.get() == Alliance.Blue ? 17 : 6;
-      scoringPoses =
-          IntStream.rangeClosed(startTagId, startTagId + 5)
-              .mapToObj(id -> layout.getTagPose(id).orElse(null))
-              .filter(pose3d -> pose3d != null)
-              .map(Pose3d::toPose2d)
-              .toList();
+    if (alliance.isEmpty()) {
+      return Optional.empty();
+    }
+    ScoringPoseIndex index =
+        alliance.get() == Alliance.Blue ? BLUE_SCORING_POSES : RED_SCORING_POSES;
+    int nearest =
+        index.nearest(drivePose.getX(), drivePose.getY(), drivePose.getRotation().getRadians());
+    return nearest < 0 ? Optional.empty() : Optional.of(index.getPose(nearest));
+  }
 
-      if (scoringPoses.isEmpty()) {
-        return drivePose;
-      }
-      Pose2d minPose = scoringPoses.get(0);
-      double minDist = drivePose.getTranslation().getDistance(scoringPoses.get(0).getTranslation());
-      for (int i = 1; i < scoringPoses.size(); i++) {
-        double dist = drivePose.getTranslation().getDistance(scoringPoses.get(i).getTranslation());
-        if (dist < minDist) {
-          minPose = scoringPoses.get(i);
+  /**
+   * Returns a path from the start to a scoring pose, made on the fly unless one from here is
+   * cached. Safe to call from any thread.
+   */
+  static PathPlannerPath planPath(Pose2d start, Pose2d scorePose) {
+    return PathCache.getInstance().get(start, getFinalPose(scorePose), CONSTRAINTS);
+  }
+
+  /**
+   * Returns a new path from the start to a scoring pose that isn't shared through the cache, so the
+   * caller may prepare it on its own thread.
+   */
+  static PathPlannerPath buildPath(Pose2d start, Pose2d scorePose) {
+    return PathCache.buildPath(start, getFinalPose(scorePose), CONSTRAINTS);
+  }
+
+  /** Returns where the robot should end up for a scoring pose. */
+  private static Pose2d getFinalPose(Pose2d scorePose) {
+    // final pose should be slightly offset from april tag position, relative to the tag
+    return scorePose.plus(
+        new Transform2d(
+            VisionConstants.tagXOffset.in(Units.Meters),
+            VisionConstants.tagYOffset.in(Units.Meters),
+            new Rotation2d()));
+  }
+
+  /**
+   * Pre-generates approach paths to every scoring pose from points straight out in front of it, so
+   * presses from the usual approach lanes don't wait on path generation.
+   */
+  public static void warmPathCache() {
+    for (ScoringPoseIndex index : new ScoringPoseIndex[] {BLUE_SCORING_POSES, RED_SCORING_POSES}) {
+      for (int i = 0; i < index.size(); i++) {
+        Pose2d scorePose = index.getPose(i);
+        for (double distance : WARM_APPROACH_DISTANCES) {
+          // Scoring poses face the tag, so backing away from it is along -x
+          Pose2d start = scorePose.plus(new Transform2d(-distance, 0.0, new Rotation2d()));
+          PathCache.getInstance().warm(start, getFinalPose(scorePose), CONSTRAINTS);
         }
       }
-      Translation2d driveTranslation = drivePose.getTranslation();
-      Translation2d scoringTranslation = minPose.getTranslation();
-      // mirror pose if red alliance to account for field to robot coordinate conversion
-      if (alliance.get() == Alliance.Red) {
-        scoringTranslation =
-            new Translation2d(
-                VisionConstants.kFieldWidth.in(Units.Meters) - scoringTranslation.getX(),
-                scoringTranslation.getY());
-      }
+    }
+  }
 
-      Translation2d movementVector = scoringTranslation.minus(driveTranslation);
-      Rotation2d directionToScore = movementVector.getAngle();
-      return new Pose2d(scoringTranslation, directionToScore);
+  private static ScoringPoseIndex buildIndex(int[] tagIds) {
+    List<Pose2d> poses = new ArrayList<>();
+    for (int id : tagIds) {
+      Pose2d scoringPose = AprilTagTable.getScoringPose(id);
+      if (scoringPose != null) {
+        poses.add(scoringPose);
+      }
     }
-    return drivePose;
+    return new ScoringPoseIndex(poses.toArray(new Pose2d[0]), INDEX_CELL_SIZE, HEADING_WEIGHT);
   }
 }
@@ -28,11 +28,9 @@ import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
@@ -44,6 +42,8 @@ import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
@@ -51,14 +51,17 @@ import frc.robot.Constants;
 import frc.robot.Constants.Mode;
 import frc.robot.generated.TunerConstants;
 import frc.robot.subsystems.vision.Vision.PoseEstimate;
+import frc.robot.util.CANSignalBudget;
+import frc.robot.util.DistanceFieldPathfinder;
+import frc.robot.util.FaultPoller;
+import frc.robot.util.FaultRegistry;
 import frc.robot.util.LocalADStarAK;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class Drive extends SubsystemBase {
   // TunerConstants doesn't include these constants, so they are declared locally
+  // Highest odometry rate, OdometryRateController lowers it when the accuracy isn't needed
   static final double ODOMETRY_FREQUENCY =
       new CANBus(TunerConstants.DrivetrainConstants.CANBusName).isNetworkFD() ? 250.0 : 100.0;
   public static final double DRIVE_BASE_RADIUS =
@@ -72,7 +75,7 @@ public class Drive extends SubsystemBase {
 
   // PathPlanner config constants
 
-  private static final RobotConfig PP_CONFIG =
+  public static final RobotConfig PP_CONFIG =
       new RobotConfig(
           Constants.ROBOT_MASS_KG,
           Constants.ROBOT_MOI,
@@ -86,7 +89,6 @@ public class Drive extends SubsystemBase {
               1),
           getModuleTranslations());
 
-  static final Lock odometryLock = new ReentrantLock();
   private final GyroIO gyroIO;
   private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
   private final Module[] modules = new Module[4]; // FL, FR, BL, BR
@@ -94,17 +96,34 @@ public class Drive extends SubsystemBase {
   private final Alert gyroDisconnectedAlert =
       new Alert("Disconnected gyro, using kinematics as fallback.", AlertType.kError);
 
+  private static final SwerveModuleState[] EMPTY_STATES = new SwerveModuleState[] {};
+
   private SwerveDriveKinematics kinematics = new SwerveDriveKinematics(getModuleTranslations());
-  private Rotation2d rawGyroRotation = new Rotation2d();
-  private SwerveModulePosition[] lastModulePositions = // For delta tracking
+  private double rawGyroRadians = 0.0;
+
+  // Odometry buffers, reused for every sample so integration doesn't allocate
+  private final SwerveModulePosition[] odometryPositions =
       new SwerveModulePosition[] {
         new SwerveModulePosition(),
         new SwerveModulePosition(),
         new SwerveModulePosition(),
         new SwerveModulePosition()
       };
-  private SwerveDrivePoseEstimator poseEstimator =
-      new SwerveDrivePoseEstimator(kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
+  private final double[] lastModuleDistances = new double[4]; // For delta tracking
+
+  private SwervePoseEstimator poseEstimator =
+      new SwervePoseEstimator(
+          getModuleTranslations(), rawGyroRadians, odometryPositions, new Pose2d());
+  private final double[] twistThetaCoefficients = poseEstimator.getTwistThetaCoefficients();
+
+  private final OdometryRateController odometryRateController = new OdometryRateController();
+  // Reused every loop to log the odometry timing histograms without allocating
+  private final long[] periodCounts;
+  private final long[] jitterCounts;
+  private final long[] overrunCounts;
+
+  // Latest pose for readers on other threads, published once per loop
+  private volatile Pose2d publishedPose = new Pose2d();
 
   public Drive(
       GyroIO gyroIO,
@@ -118,11 +137,26 @@ public class Drive extends SubsystemBase {
     modules[2] = new Module(blModuleIO, 2, TunerConstants.BackLeft);
     modules[3] = new Module(brModuleIO, 3, TunerConstants.BackRight);
 
+    PhoenixOdometryThread odometryThread = PhoenixOdometryThread.getInstance();
+    periodCounts = new long[odometryThread.getPeriodHistogram().getBinCount()];
+    jitterCounts = new long[odometryThread.getJitterHistogram().getBinCount()];
+    overrunCounts = new long[odometryThread.getOverrunHistogram().getBinCount()];
+
+    // Add the drivetrain's devices to the fault tree
+    FaultRegistry.Node faultNode = FaultRegistry.getInstance().getRoot().child("Drive");
+    gyroIO.registerFaults(faultNode);
+    for (var module : modules) {
+      module.registerFaults(faultNode);
+    }
+
     // Usage reporting for swerve template
     HAL.report(tResourceType.kResourceType_RobotDrive, tInstances.kRobotDriveSwerve_AdvantageKit);
 
+    // Set signal rates now that every IO implementation has registered its signals
+    CANSignalBudget.getInstance().apply();
+
     // Start odometry thread
-    PhoenixOdometryThread.getInstance().start();
+    odometryThread.start();
 
     // Configure AutoBuilder for PathPlanner
     AutoBuilder.configure(
@@ -135,7 +169,10 @@ public class Drive extends SubsystemBase {
         PP_CONFIG,
         () -> DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red,
         this);
-    Pathfinding.setPathfinder(new LocalADStarAK());
+    Pathfinding.setPathfinder(
+        Constants.DriveConstants.USE_DISTANCE_FIELD_PATHFINDER
+            ? new DistanceFieldPathfinder()
+            : new LocalADStarAK());
     PathPlannerLogging.setLogActivePathCallback(
         (activePath) -> {
           Logger.recordOutput(
@@ -160,16 +197,34 @@ public class Drive extends SubsystemBase {
 
   @Override
   public void periodic() {
-    odometryLock.lock(); // Prevents odometry updates while reading data
+    // Agree on which odometry frames all IO implementations consume this cycle
+    PhoenixOdometryThread odometryThread = PhoenixOdometryThread.getInstance();
+    odometryThread.takeSnapshot();
+    Logger.recordOutput("Odometry/SnapshotRetries", odometryThread.getSnapshotRetries());
+    Logger.recordOutput("Odometry/DroppedFrames", odometryThread.getDroppedFrames());
+    Logger.recordOutput("Odometry/Overruns", odometryThread.getOverruns());
+    // Each histogram holds only the odometry cycles since the previous loop
+    odometryThread.getPeriodHistogram().drainCounts(periodCounts);
+    odometryThread.getJitterHistogram().drainCounts(jitterCounts);
+    odometryThread.getOverrunHistogram().drainCounts(overrunCounts);
+    Logger.recordOutput("Odometry/PeriodHistogramMs", periodCounts);
+    Logger.recordOutput("Odometry/JitterHistogramMs", jitterCounts);
+    Logger.recordOutput("Odometry/OverrunHistogramMs", overrunCounts);
+    Logger.recordOutput("Faults/PollMs", FaultPoller.getInstance().getLastPollMs());
+
+    // Refresh every drivetrain signal in one call, then let each IO read the cached values
+    long refreshStart = RobotController.getFPGATime();
+    PhoenixSignalBatch.getInstance().refresh();
+    long inputsStart = RobotController.getFPGATime();
     gyroIO.updateFault();
-
     gyroIO.updateInputs(gyroInputs);
-    gyroIO.updateFault();
     Logger.processInputs("Drive/Gyro", gyroInputs);
     for (var module : modules) {
       module.periodic();
     }
-    odometryLock.unlock();
+    long inputsEnd = RobotController.getFPGATime();
+    Logger.recordOutput("Drive/SignalRefreshMs", (inputsStart - refreshStart) / 1e3);
+    Logger.recordOutput("Drive/InputsUpdateMs", (inputsEnd - inputsStart) / 1e3);
 
     // Stop moving when disabled
     if (DriverStation.isDisabled()) {
@@ -180,42 +235,59 @@ public class Drive extends SubsystemBase {
 
     // Log empty setpoint states when disabled
     if (DriverStation.isDisabled()) {
-      Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-      Logger.recordOutput("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
+      Logger.recordOutput("SwerveStates/Setpoints", EMPTY_STATES);
+      Logger.recordOutput("SwerveStates/SetpointsOptimized", EMPTY_STATES);
     }
 
     // Update odometry
-    double[] sampleTimestamps =
-        modules[0].getOdometryTimestamps(); // All signals are sampled together
-    int sampleCount = sampleTimestamps.length;
+    int sampleCount = modules[0].getOdometrySampleCount(); // All signals are sampled together
     for (int i = 0; i < sampleCount; i++) {
-      // Read wheel positions and deltas from each module
-      SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-      SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
+      // Each module reports its own hardware timestamp, so use their mean for the whole sample
+      double sampleTimestamp = 0.0;
+      double twistTheta = 0.0;
       for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
-        modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-        moduleDeltas[moduleIndex] =
-            new SwerveModulePosition(
-                modulePositions[moduleIndex].distanceMeters
-                    - lastModulePositions[moduleIndex].distanceMeters,
-                modulePositions[moduleIndex].angle);
-        lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+        Module module = modules[moduleIndex];
+        sampleTimestamp += module.getOdometryTimestamp(i) / 4.0;
+
+        // Update the reused position in place and accumulate its rotation from the kinematics
+        double distance = module.getOdometryDistanceMeters(i);
+        Rotation2d angle = module.getOdometryAngle(i);
+        double delta = distance - lastModuleDistances[moduleIndex];
+        twistTheta +=
+            twistThetaCoefficients[moduleIndex * 2] * delta * angle.getCos()
+                + twistThetaCoefficients[moduleIndex * 2 + 1] * delta * angle.getSin();
+        odometryPositions[moduleIndex].distanceMeters = distance;
+        odometryPositions[moduleIndex].angle = angle;
+        lastModuleDistances[moduleIndex] = distance;
       }
 
       // Update gyro angle
       if (gyroInputs.connected) {
         // Use the real gyro angle
-        rawGyroRotation = gyroInputs.odometryYawPositions[i];
+        rawGyroRadians = gyroInputs.odometryYawPositions[i].getRadians();
       } else {
         // Use the angle delta from the kinematics and module deltas
-        Twist2d twist = kinematics.toTwist2d(moduleDeltas);
-        rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
+        rawGyroRadians += twistTheta;
       }
 
       // Apply update
-      poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, modulePositions);
+      poseEstimator.updateWithTime(sampleTimestamp, rawGyroRadians, odometryPositions);
     }
 
+    publishedPose = getPose();
+
+    // Spend bus bandwidth on odometry only while the robot is moving enough to need it
+    double busUtilization =
+        Constants.currentMode == Mode.REAL ? CANSignalBudget.getInstance().periodic() : 0.0;
+    double odometryFrequency =
+        odometryRateController.update(
+            Timer.getFPGATimestamp(),
+            getChassisSpeeds(),
+            DriverStation.isEnabled(),
+            busUtilization);
+    odometryThread.setFrequency(odometryFrequency);
+    Logger.recordOutput("Odometry/Frequency", odometryFrequency);
+
     // Update gyro alert
     gyroDisconnectedAlert.set(!gyroInputs.connected && Constants.currentMode != Mode.SIM);
   }
@@ -330,6 +402,11 @@ public class Drive extends SubsystemBase {
     return poseEstimator.getEstimatedPosition();
   }
 
+  /** Returns the pose as of the last drive update. Safe to call from any thread. */
+  public Pose2d getPublishedPose() {
+    return publishedPose;
+  }
+
   /** Returns the current odometry rotation. */
   public Rotation2d getRotation() {
     return getPose().getRotation();
@@ -337,7 +414,7 @@ public class Drive extends SubsystemBase {
 
   /** Resets the current odometry pose. */
   public void setPose(Pose2d pose) {
-    poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+    poseEstimator.resetPosition(rawGyroRadians, getModulePositions(), pose);
   }
 
   public void updateEstimates(PoseEstimate poseEstimate) {
@@ -17,12 +17,14 @@ import static edu.wpi.first.units.Units.*;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.measure.*;
+import frc.robot.util.FaultRegistry;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface GyroIO {
   @AutoLog
   public static class GyroIOInputs {
     public boolean connected = false;
+    public long faults = 0;
     public Rotation2d yawPosition = new Rotation2d();
     public double yawVelocityRadPerSec = 0.0;
     public Angle xRotation = Degrees.of(0);
@@ -38,4 +40,7 @@ public interface GyroIO {
   public default void updateInputs(GyroIOInputs inputs) {}
 
   public default void updateFault() {}
+
+  /** Adds the gyro to the fault tree under the given subsystem node. */
+  public default void registerFaults(FaultRegistry.Node subsystem) {}
 }
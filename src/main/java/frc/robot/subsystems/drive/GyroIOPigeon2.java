@@ -14,7 +14,6 @@
 package frc.robot.subsystems.drive;
 
 import com.ctre.phoenix6.BaseStatusSignal;
-import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
@@ -23,9 +22,14 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
 import frc.robot.generated.TunerConstants;
+import frc.robot.util.CANSignalBudget;
+import frc.robot.util.CANSignalBudget.Priority;
+import frc.robot.util.DoubleRingBuffer;
 import frc.robot.util.Fault;
 import frc.robot.util.FaultChecker;
-import java.util.Queue;
+import frc.robot.util.FaultPoller;
+import frc.robot.util.FaultRegistry;
+import java.util.Arrays;
 
 /** IO implementation for Pigeon 2. */
 public class GyroIOPigeon2 implements GyroIO {
@@ -34,19 +38,51 @@ public class GyroIOPigeon2 implements GyroIO {
           TunerConstants.DrivetrainConstants.Pigeon2Id,
           TunerConstants.DrivetrainConstants.CANBusName);
   private final StatusSignal<Angle> yaw = pigeon.getYaw();
-  private final Queue<Double> yawPositionQueue;
-  private final Queue<Double> yawTimestampQueue;
+  private final DoubleRingBuffer yawPositionQueue;
+  private final DoubleRingBuffer yawTimestampQueue;
+  private final double[] yawPositionSamples;
+  private final double[] yawTimestampSamples;
   private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
+  private final StatusSignal<Angle> accumGyroX = pigeon.getAccumGyroX();
+  private final StatusSignal<Angle> accumGyroY = pigeon.getAccumGyroY();
+  private final StatusSignal<Angle> accumGyroZ = pigeon.getAccumGyroZ();
+  private final StatusSignal<AngularVelocity> angularVelocityX = pigeon.getAngularVelocityXDevice();
+  private final StatusSignal<AngularVelocity> angularVelocityY = pigeon.getAngularVelocityYDevice();
+  private final StatusSignal<AngularVelocity> angularVelocityZ = pigeon.getAngularVelocityZDevice();
 
   public GyroIOPigeon2() {
     pigeon.getConfigurator().apply(new Pigeon2Configuration());
     pigeon.getConfigurator().setYaw(0.0);
-    yaw.setUpdateFrequency(Drive.ODOMETRY_FREQUENCY);
-    yawVelocity.setUpdateFrequency(50.0);
-    pigeon.optimizeBusUtilization();
-    yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-    yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon.getYaw());
-    pigeon.getAccumGyroX();
+    CANSignalBudget budget = CANSignalBudget.getInstance();
+    budget.register(pigeon, Priority.ODOMETRY, Drive.ODOMETRY_FREQUENCY, yaw);
+    budget.register(pigeon, Priority.CONTROL, 50.0, yawVelocity);
+    budget.register(
+        pigeon,
+        Priority.TELEMETRY,
+        50.0,
+        accumGyroX,
+        accumGyroY,
+        accumGyroZ,
+        angularVelocityX,
+        angularVelocityY,
+        angularVelocityZ);
+    budget.optimizeBusUtilization(pigeon);
+
+    // Refreshed by Drive together with every other drivetrain signal
+    PhoenixSignalBatch.getInstance()
+        .register(
+            yaw,
+            yawVelocity,
+            accumGyroX,
+            accumGyroY,
+            accumGyroZ,
+            angularVelocityX,
+            angularVelocityY,
+            angularVelocityZ);
+    yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(yaw);
+    yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue(yaw);
+    yawPositionSamples = new double[yawPositionQueue.capacity()];
+    yawTimestampSamples = new double[yawTimestampQueue.capacity()];
 
     pigeonFaults.addFault(new Fault(pigeon::getFault_BootDuringEnable));
     pigeonFaults.addFault(new Fault(pigeon::getFault_BootIntoMotion));
@@ -61,32 +97,38 @@ public class GyroIOPigeon2 implements GyroIO {
     pigeonFaults.addFault(new Fault(pigeon::getFault_SaturatedMagnetometer));
     pigeonFaults.addFault(new Fault(pigeon::getFault_Undervoltage));
     pigeonFaults.addFault(new Fault(pigeon::getFault_UnlicensedFeatureInUse));
+
+    // Fault signals are read by the fault poller, so keep them broadcasting at its rate
+    budget.register(
+        pigeon, Priority.TELEMETRY, FaultPoller.FREQUENCY_HZ, 1, pigeonFaults.getSignals());
   }
 
   @Override
   public void updateInputs(GyroIOInputs inputs) {
-    inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+    // Signals were already refreshed by PhoenixSignalBatch
+    inputs.connected = BaseStatusSignal.isAllGood(yaw, yawVelocity);
+    inputs.faults = pigeonFaults.getActiveMask();
 
     inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
     inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
 
-    inputs.xRotation = pigeon.getAccumGyroX().getValue();
-    inputs.xAngularVelocity = pigeon.getAngularVelocityXDevice().getValue();
+    inputs.xRotation = accumGyroX.getValue();
+    inputs.xAngularVelocity = angularVelocityX.getValue();
 
-    inputs.yRotation = pigeon.getAccumGyroY().getValue();
-    inputs.yAngularVelocity = pigeon.getAngularVelocityYDevice().getValue();
+    inputs.yRotation = accumGyroY.getValue();
+    inputs.yAngularVelocity = angularVelocityY.getValue();
 
-    inputs.zRotation = pigeon.getAccumGyroZ().getValue();
-    inputs.zAngularVelocity = pigeon.getAngularVelocityZDevice().getValue();
+    inputs.zRotation = accumGyroZ.getValue();
+    inputs.zAngularVelocity = angularVelocityZ.getValue();
 
-    inputs.odometryYawTimestamps =
-        yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryYawPositions =
-        yawPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromDegrees(value))
-            .toArray(Rotation2d[]::new);
-    yawTimestampQueue.clear();
-    yawPositionQueue.clear();
+    long snapshotEnd = PhoenixOdometryThread.getInstance().getSnapshotEnd();
+    int sampleCount = yawTimestampQueue.drainUntil(yawTimestampSamples, snapshotEnd);
+    yawPositionQueue.drainUntil(yawPositionSamples, snapshotEnd);
+    inputs.odometryYawTimestamps = Arrays.copyOf(yawTimestampSamples, sampleCount);
+    inputs.odometryYawPositions = new Rotation2d[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      inputs.odometryYawPositions[i] = Rotation2d.fromDegrees(yawPositionSamples[i]);
+    }
   }
 
   public FaultChecker pigeonFaults = new FaultChecker("pigeon2");
@@ -95,4 +137,9 @@ public class GyroIOPigeon2 implements GyroIO {
   public void updateFault() {
     pigeonFaults.updateFaults();
   }
+
+  @Override
+  public void registerFaults(FaultRegistry.Node subsystem) {
+    subsystem.addDevice(pigeonFaults);
+  }
 }
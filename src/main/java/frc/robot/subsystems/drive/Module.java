@@ -22,6 +22,7 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import frc.robot.util.FaultRegistry;
 import org.littletonrobotics.junction.Logger;
 
 public class Module {
@@ -35,7 +36,11 @@ public class Module {
   private final Alert driveDisconnectedAlert;
   private final Alert turnDisconnectedAlert;
   private final Alert turnEncoderDisconnectedAlert;
-  private SwerveModulePosition[] odometryPositions = new SwerveModulePosition[] {};
+  private final String inputsKey;
+
+  // Reused across cycles, only reallocated if a cycle brings more samples than ever before
+  private double[] odometryDistancesMeters = new double[0];
+  private int odometrySampleCount = 0;
 
   public Module(
       ModuleIO io,
@@ -45,6 +50,7 @@ public class Module {
     this.io = io;
     this.index = index;
     this.constants = constants;
+    inputsKey = "Drive/Module" + Integer.toString(index);
     driveDisconnectedAlert =
         new Alert(
             "Disconnected drive motor on module " + Integer.toString(index) + ".",
@@ -58,18 +64,24 @@ public class Module {
             AlertType.kError);
   }
 
+  /** Adds the module's devices to the fault tree under the given subsystem node. */
+  public void registerFaults(FaultRegistry.Node subsystem) {
+    io.registerFaults(subsystem.child("Module" + Integer.toString(index)));
+  }
+
   public void periodic() {
-    io.updateInputs(inputs);
+    // Faults first, so the inputs log this cycle's fault masks
     io.updateFaults();
-    Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
+    io.updateInputs(inputs);
+    Logger.processInputs(inputsKey, inputs);
 
     // Calculate positions for odometry
-    int sampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
-    odometryPositions = new SwerveModulePosition[sampleCount];
-    for (int i = 0; i < sampleCount; i++) {
-      double positionMeters = inputs.odometryDrivePositionsRad[i] * constants.WheelRadius;
-      Rotation2d angle = inputs.odometryTurnPositions[i];
-      odometryPositions[i] = new SwerveModulePosition(positionMeters, angle);
+    odometrySampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
+    if (odometryDistancesMeters.length < odometrySampleCount) {
+      odometryDistancesMeters = new double[odometrySampleCount];
+    }
+    for (int i = 0; i < odometrySampleCount; i++) {
+      odometryDistancesMeters[i] = inputs.odometryDrivePositionsRad[i] * constants.WheelRadius;
     }
 
     // Update alerts
@@ -126,14 +138,24 @@ public class Module {
     return new SwerveModuleState(getVelocityMetersPerSec(), getAngle());
   }
 
-  /** Returns the module positions received this cycle. */
-  public SwerveModulePosition[] getOdometryPositions() {
-    return odometryPositions;
+  /** Returns the number of odometry samples received this cycle. */
+  public int getOdometrySampleCount() {
+    return odometrySampleCount;
+  }
+
+  /** Returns the drive position in meters of an odometry sample received this cycle. */
+  public double getOdometryDistanceMeters(int sampleIndex) {
+    return odometryDistancesMeters[sampleIndex];
+  }
+
+  /** Returns the turn angle of an odometry sample received this cycle. */
+  public Rotation2d getOdometryAngle(int sampleIndex) {
+    return inputs.odometryTurnPositions[sampleIndex];
   }
 
-  /** Returns the timestamps of the samples received this cycle. */
-  public double[] getOdometryTimestamps() {
-    return inputs.odometryTimestamps;
+  /** Returns the timestamp of an odometry sample received this cycle. */
+  public double getOdometryTimestamp(int sampleIndex) {
+    return inputs.odometryTimestamps[sampleIndex];
   }
 
   /** Returns the module position in radians. */
@@ -14,6 +14,7 @@
 package frc.robot.subsystems.drive;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.util.FaultRegistry;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface ModuleIO {
@@ -24,6 +25,7 @@ public interface ModuleIO {
     public double driveVelocityRadPerSec = 0.0;
     public double driveAppliedVolts = 0.0;
     public double driveCurrentAmps = 0.0;
+    public long driveFaults = 0;
 
     public boolean turnConnected = false;
     public boolean turnEncoderConnected = false;
@@ -32,6 +34,8 @@ public interface ModuleIO {
     public double turnVelocityRadPerSec = 0.0;
     public double turnAppliedVolts = 0.0;
     public double turnCurrentAmps = 0.0;
+    public long turnFaults = 0;
+    public long turnEncoderFaults = 0;
 
     public double[] odometryTimestamps = new double[] {};
     public double[] odometryDrivePositionsRad = new double[] {};
@@ -54,4 +58,7 @@ public interface ModuleIO {
   public default void setTurnPosition(Rotation2d rotation) {}
 
   public default void updateFaults() {}
+
+  /** Adds the module's devices to the fault tree under the given module node. */
+  public default void registerFaults(FaultRegistry.Node module) {}
 }
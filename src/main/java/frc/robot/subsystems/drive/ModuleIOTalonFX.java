@@ -26,7 +26,6 @@ import com.ctre.phoenix6.controls.VelocityTorqueCurrentFOC;
 import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.CANcoder;
-import com.ctre.phoenix6.hardware.ParentDevice;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.FeedbackSensorSourceValue;
 import com.ctre.phoenix6.signals.InvertedValue;
@@ -41,10 +40,14 @@ import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Voltage;
 import frc.robot.generated.TunerConstants;
+import frc.robot.util.CANSignalBudget;
+import frc.robot.util.CANSignalBudget.Priority;
+import frc.robot.util.DoubleRingBuffer;
 import frc.robot.util.Fault;
 import frc.robot.util.FaultChecker;
-
-import java.util.Queue;
+import frc.robot.util.FaultPoller;
+import frc.robot.util.FaultRegistry;
+import java.util.Arrays;
 
 /**
  * Module IO implementation for Talon FX drive motor controller, Talon FX turn motor controller, and
@@ -75,11 +78,11 @@ public class ModuleIOTalonFX implements ModuleIO {
       new VelocityTorqueCurrentFOC(0.0);
 
   // Timestamp inputs from Phoenix thread
-  private final Queue<Double> timestampQueue;
+  private final DoubleRingBuffer timestampQueue;
 
   // Inputs from drive motor
   private final StatusSignal<Angle> drivePosition;
-  private final Queue<Double> drivePositionQueue;
+  private final DoubleRingBuffer drivePositionQueue;
   private final StatusSignal<AngularVelocity> driveVelocity;
   private final StatusSignal<Voltage> driveAppliedVolts;
   private final StatusSignal<Current> driveCurrent;
@@ -87,11 +90,16 @@ public class ModuleIOTalonFX implements ModuleIO {
   // Inputs from turn motor
   private final StatusSignal<Angle> turnAbsolutePosition;
   private final StatusSignal<Angle> turnPosition;
-  private final Queue<Double> turnPositionQueue;
+  private final DoubleRingBuffer turnPositionQueue;
   private final StatusSignal<AngularVelocity> turnVelocity;
   private final StatusSignal<Voltage> turnAppliedVolts;
   private final StatusSignal<Current> turnCurrent;
 
+  // Reused buffers for draining the odometry queues
+  private final double[] timestampSamples;
+  private final double[] drivePositionSamples;
+  private final double[] turnPositionSamples;
+
   // Connection debouncers
   private final Debouncer driveConnectedDebounce = new Debouncer(0.5);
   private final Debouncer turnConnectedDebounce = new Debouncer(0.5);
@@ -156,13 +164,9 @@ public class ModuleIOTalonFX implements ModuleIO {
             : SensorDirectionValue.CounterClockwise_Positive;
     cancoder.getConfigurator().apply(cancoderConfig);
 
-    // Create timestamp queue
-    timestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-
     // Create drive status signals
     drivePosition = driveTalon.getPosition();
-    drivePositionQueue =
-        PhoenixOdometryThread.getInstance().registerSignal(driveTalon.getPosition());
+    drivePositionQueue = PhoenixOdometryThread.getInstance().registerSignal(drivePosition);
     driveVelocity = driveTalon.getVelocity();
     driveAppliedVolts = driveTalon.getMotorVoltage();
     driveCurrent = driveTalon.getStatorCurrent();
@@ -175,49 +179,86 @@ public class ModuleIOTalonFX implements ModuleIO {
     turnAppliedVolts = turnTalon.getMotorVoltage();
     turnCurrent = turnTalon.getStatorCurrent();
 
-    // Configure periodic frames
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        Drive.ODOMETRY_FREQUENCY, drivePosition, turnPosition);
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0,
-        driveVelocity,
-        driveAppliedVolts,
-        driveCurrent,
-        turnAbsolutePosition,
-        turnVelocity,
-        turnAppliedVolts,
-        turnCurrent);
-    ParentDevice.optimizeBusUtilizationForAll(driveTalon, turnTalon);
+    // Create timestamp queue from the drive position's hardware timestamps
+    timestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue(drivePosition);
+
+    timestampSamples = new double[timestampQueue.capacity()];
+    drivePositionSamples = new double[drivePositionQueue.capacity()];
+    turnPositionSamples = new double[turnPositionQueue.capacity()];
+
+    // Request periodic frames, the budget sets the actual rates once every device is registered
+    CANSignalBudget budget = CANSignalBudget.getInstance();
+    budget.register(driveTalon, Priority.ODOMETRY, Drive.ODOMETRY_FREQUENCY, drivePosition);
+    budget.register(turnTalon, Priority.ODOMETRY, Drive.ODOMETRY_FREQUENCY, turnPosition);
+    budget.register(driveTalon, Priority.CONTROL, 50.0, driveVelocity);
+    budget.register(turnTalon, Priority.CONTROL, 50.0, turnVelocity);
+    budget.register(cancoder, Priority.CONTROL, 50.0, turnAbsolutePosition);
+    budget.register(driveTalon, Priority.TELEMETRY, 50.0, driveAppliedVolts, driveCurrent);
+    budget.register(turnTalon, Priority.TELEMETRY, 50.0, turnAppliedVolts, turnCurrent);
+    budget.optimizeBusUtilization(driveTalon, turnTalon);
+
+    // Refreshed by Drive together with every other drivetrain signal
+    PhoenixSignalBatch.getInstance()
+        .register(
+            drivePosition,
+            driveVelocity,
+            driveAppliedVolts,
+            driveCurrent,
+            turnPosition,
+            turnVelocity,
+            turnAppliedVolts,
+            turnCurrent,
+            turnAbsolutePosition);
 
     addFaultsToTalon(driveTalon, driveTalonFaultChecker);
     addFaultsToTalon(turnTalon, turnTalonFaultChecker);
     addFaultsToEncoders(cancoder, CANcoderFaultChecker);
+
+    // Fault signals are read by the fault poller, so keep them broadcasting at its rate
+    budget.register(
+        driveTalon,
+        Priority.TELEMETRY,
+        FaultPoller.FREQUENCY_HZ,
+        1,
+        driveTalonFaultChecker.getSignals());
+    budget.register(
+        turnTalon,
+        Priority.TELEMETRY,
+        FaultPoller.FREQUENCY_HZ,
+        1,
+        turnTalonFaultChecker.getSignals());
+    budget.register(
+        cancoder,
+        Priority.TELEMETRY,
+        FaultPoller.FREQUENCY_HZ,
+        1,
+        CANcoderFaultChecker.getSignals());
   }
 
   private void addFaultsToTalon(TalonFX talon, FaultChecker faultCheckerForTalon) {
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_BootDuringEnable));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_BridgeBrownout));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_DeviceTemp));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_ForwardHardLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_ForwardSoftLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_FusedSensorOutOfSync));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_Hardware));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_MissingDifferentialFX));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_MissingHardLimitRemote));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_MissingSoftLimitRemote));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_OverSupplyV));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_ProcTemp));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_RemoteSensorDataInvalid));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_RemoteSensorPosOverflow));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_RemoteSensorReset));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_ReverseHardLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_ReverseSoftLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_StaticBrakeDisabled));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_StatorCurrLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_SupplyCurrLimit));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_Undervoltage));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_UnlicensedFeatureInUse));
-    turnTalonFaultChecker.addFault(new Fault(talon::getFault_UsingFusedCANcoderWhileUnlicensed));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_BootDuringEnable));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_BridgeBrownout));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_DeviceTemp));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_ForwardHardLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_ForwardSoftLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_FusedSensorOutOfSync));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_Hardware));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_MissingDifferentialFX));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_MissingHardLimitRemote));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_MissingSoftLimitRemote));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_OverSupplyV));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_ProcTemp));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_RemoteSensorDataInvalid));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_RemoteSensorPosOverflow));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_RemoteSensorReset));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_ReverseHardLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_ReverseSoftLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_StaticBrakeDisabled));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_StatorCurrLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_SupplyCurrLimit));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_Undervoltage));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_UnlicensedFeatureInUse));
+    faultCheckerForTalon.addFault(new Fault(talon::getFault_UsingFusedCANcoderWhileUnlicensed));
   }
 
   private void addFaultsToEncoders(CANcoder encoder, FaultChecker faultCheckerForCANcoder) {
@@ -230,43 +271,44 @@ public class ModuleIOTalonFX implements ModuleIO {
 
   @Override
   public void updateInputs(ModuleIOInputs inputs) {
-    // Refresh all signals
-    var driveStatus =
-        BaseStatusSignal.refreshAll(drivePosition, driveVelocity, driveAppliedVolts, driveCurrent);
-    var turnStatus =
-        BaseStatusSignal.refreshAll(turnPosition, turnVelocity, turnAppliedVolts, turnCurrent);
-    var turnEncoderStatus = BaseStatusSignal.refreshAll(turnAbsolutePosition);
+    // Signals were already refreshed by PhoenixSignalBatch
+    boolean driveOK =
+        BaseStatusSignal.isAllGood(drivePosition, driveVelocity, driveAppliedVolts, driveCurrent);
+    boolean turnOK =
+        BaseStatusSignal.isAllGood(turnPosition, turnVelocity, turnAppliedVolts, turnCurrent);
+    boolean turnEncoderOK = BaseStatusSignal.isAllGood(turnAbsolutePosition);
 
     // Update drive inputs
-    inputs.driveConnected = driveConnectedDebounce.calculate(driveStatus.isOK());
+    inputs.driveConnected = driveConnectedDebounce.calculate(driveOK);
     inputs.drivePositionRad = Units.rotationsToRadians(drivePosition.getValueAsDouble());
     inputs.driveVelocityRadPerSec = Units.rotationsToRadians(driveVelocity.getValueAsDouble());
     inputs.driveAppliedVolts = driveAppliedVolts.getValueAsDouble();
     inputs.driveCurrentAmps = driveCurrent.getValueAsDouble();
+    inputs.driveFaults = driveTalonFaultChecker.getActiveMask();
 
     // Update turn inputs
-    inputs.turnConnected = turnConnectedDebounce.calculate(turnStatus.isOK());
-    inputs.turnEncoderConnected = turnEncoderConnectedDebounce.calculate(turnEncoderStatus.isOK());
+    inputs.turnConnected = turnConnectedDebounce.calculate(turnOK);
+    inputs.turnEncoderConnected = turnEncoderConnectedDebounce.calculate(turnEncoderOK);
     inputs.turnAbsolutePosition = Rotation2d.fromRotations(turnAbsolutePosition.getValueAsDouble());
     inputs.turnPosition = Rotation2d.fromRotations(turnPosition.getValueAsDouble());
     inputs.turnVelocityRadPerSec = Units.rotationsToRadians(turnVelocity.getValueAsDouble());
     inputs.turnAppliedVolts = turnAppliedVolts.getValueAsDouble();
     inputs.turnCurrentAmps = turnCurrent.getValueAsDouble();
+    inputs.turnFaults = turnTalonFaultChecker.getActiveMask();
+    inputs.turnEncoderFaults = CANcoderFaultChecker.getActiveMask();
 
     // Update odometry inputs
-    inputs.odometryTimestamps =
-        timestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryDrivePositionsRad =
-        drivePositionQueue.stream()
-            .mapToDouble((Double value) -> Units.rotationsToRadians(value))
-            .toArray();
-    inputs.odometryTurnPositions =
-        turnPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromRotations(value))
-            .toArray(Rotation2d[]::new);
-    timestampQueue.clear();
-    drivePositionQueue.clear();
-    turnPositionQueue.clear();
+    long snapshotEnd = PhoenixOdometryThread.getInstance().getSnapshotEnd();
+    int sampleCount = timestampQueue.drainUntil(timestampSamples, snapshotEnd);
+    drivePositionQueue.drainUntil(drivePositionSamples, snapshotEnd);
+    turnPositionQueue.drainUntil(turnPositionSamples, snapshotEnd);
+    inputs.odometryTimestamps = Arrays.copyOf(timestampSamples, sampleCount);
+    inputs.odometryDrivePositionsRad = new double[sampleCount];
+    inputs.odometryTurnPositions = new Rotation2d[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      inputs.odometryDrivePositionsRad[i] = Units.rotationsToRadians(drivePositionSamples[i]);
+      inputs.odometryTurnPositions[i] = Rotation2d.fromRotations(turnPositionSamples[i]);
+    }
   }
 
   @Override
@@ -317,4 +359,11 @@ public class ModuleIOTalonFX implements ModuleIO {
     driveTalonFaultChecker.updateFaults();
     CANcoderFaultChecker.updateFaults();
   }
+
+  @Override
+  public void registerFaults(FaultRegistry.Node module) {
+    module.addDevice(driveTalonFaultChecker);
+    module.addDevice(turnTalonFaultChecker);
+    module.addDevice(CANcoderFaultChecker);
+  }
 }
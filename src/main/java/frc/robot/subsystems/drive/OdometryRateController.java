@@ -0,0 +1,80 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Picks the odometry sampling rate from how the robot is moving. Fast or hard-accelerating driving
+ * gets the full {@link Drive#ODOMETRY_FREQUENCY}, since that is where integration error between
+ * samples adds up, while a stationary or disabled robot drops to a low rate to free up the bus.
+ *
+ * <p>Rates go up as soon as motion calls for them but only come down after the robot has been
+ * calm for {@link #DOWNSHIFT_DELAY_SECS}, so the signals are not reconfigured every loop near a
+ * threshold.
+ */
+public class OdometryRateController {
+  public static final double IDLE_FREQUENCY = 50.0;
+  public static final double CRUISE_FREQUENCY = Math.min(100.0, Drive.ODOMETRY_FREQUENCY);
+
+  // Speeds are the fastest point on the robot, so they include rotation
+  private static final double STATIONARY_SPEED = 0.05; // m/s
+  private static final double FAST_SPEED = 2.0; // m/s
+  private static final double FAST_ACCELERATION = 4.0; // m/s^2
+  private static final double DOWNSHIFT_DELAY_SECS = 0.5;
+  // Above this bus utilization the full rate is no longer worth the bus time
+  private static final double MAX_BUS_UTILIZATION = 0.8;
+
+  private double frequency = Drive.ODOMETRY_FREQUENCY;
+  private double lastSpeed = 0.0;
+  private double lastTimestamp = Double.NaN;
+  private double calmSince = Double.NaN;
+
+  /**
+   * Updates the chosen rate.
+   *
+   * @param timestamp the current time in seconds
+   * @param speeds the measured robot-relative chassis speeds
+   * @param enabled whether the robot is enabled
+   * @param busUtilization the measured CAN bus utilization, from 0 to 1
+   * @return the odometry frequency to use in Hz
+   */
+  public double update(
+      double timestamp, ChassisSpeeds speeds, boolean enabled, double busUtilization) {
+    double speed =
+        Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond)
+            + Math.abs(speeds.omegaRadiansPerSecond) * Drive.DRIVE_BASE_RADIUS;
+    double dt = timestamp - lastTimestamp;
+    double acceleration = dt > 0.0 ? Math.abs(speed - lastSpeed) / dt : 0.0;
+    lastSpeed = speed;
+    lastTimestamp = timestamp;
+
+    double target;
+    if (!enabled || speed < STATIONARY_SPEED) {
+      target = IDLE_FREQUENCY;
+    } else if (speed > FAST_SPEED || acceleration > FAST_ACCELERATION) {
+      target = Drive.ODOMETRY_FREQUENCY;
+    } else {
+      target = CRUISE_FREQUENCY;
+    }
+    if (busUtilization > MAX_BUS_UTILIZATION) {
+      target = Math.min(target, CRUISE_FREQUENCY);
+    }
+
+    if (target >= frequency) {
+      frequency = target;
+      calmSince = Double.NaN;
+    } else if (!enabled) {
+      frequency = target; // Nothing to be accurate about while disabled
+    } else if (Double.isNaN(calmSince)) {
+      calmSince = timestamp;
+    } else if (timestamp - calmSince >= DOWNSHIFT_DELAY_SECS) {
+      frequency = target;
+      calmSince = Double.NaN;
+    }
+    return frequency;
+  }
+
+  /** Returns the most recently chosen odometry frequency in Hz. */
+  public double getFrequency() {
+    return frequency;
+  }
+}
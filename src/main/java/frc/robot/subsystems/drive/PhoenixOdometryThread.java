@@ -16,33 +16,82 @@ package frc.robot.subsystems.drive;
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.CANBus;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Timestamp;
+import com.ctre.phoenix6.Utils;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Threads;
+import frc.robot.Constants.DriveConstants;
 import frc.robot.generated.TunerConstants;
+import frc.robot.util.AtomicHistogram;
+import frc.robot.util.DoubleRingBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.DoubleSupplier;
 
 /**
  * Provides an interface for asynchronously reading high-frequency measurements to a set of queues.
+ * Each queue is a preallocated {@link DoubleRingBuffer}, so sampling never boxes values or contends
+ * on a queue lock. Samples taken together form a frame, and readers use {@link #takeSnapshot()} to
+ * agree on which frames to consume instead of locking the thread out.
  *
  * <p>This version is intended for Phoenix 6 devices on both the RIO and CANivore buses. When using
  * a CANivore, the thread uses the "waitForAll" blocking method to enable more consistent sampling.
  * This also allows Phoenix Pro users to benefit from lower latency between devices using CANivore
  * time synchronization.
+ *
+ * <p>Timestamp queues tied to a Phoenix signal record that signal's own hardware timestamp,
+ * converted to the FPGA timebase using an offset that is recalibrated every cycle.
+ *
+ * <p>The thread runs at {@link DriveConstants#ODOMETRY_THREAD_PRIORITY} so GC and other
+ * non-real-time threads cannot delay sampling. Without CAN FD it sleeps until fixed deadlines
+ * rather than for a fixed time, so a slow cycle shortens the next sleep instead of shifting every
+ * later sample. The period, jitter, and overruns of each cycle are kept in histograms for logging.
+ *
+ * <p>The sampling rate can be changed while running with {@link #setFrequency(double)}. The thread
+ * reconfigures its Phoenix signals itself, so the main loop never blocks on the CAN round trip.
  */
 public class PhoenixOdometryThread extends Thread {
+  private static final int QUEUE_CAPACITY = 20;
+  // Calibration reads that take longer than this were likely preempted and are skipped
+  private static final double MAX_CALIBRATION_READ_SECS = 50e-6;
+  private static final double OFFSET_FILTER_GAIN = 0.02;
+  // Bounds how long the main thread waits on an in-flight frame if the odometry thread is preempted
+  private static final int MAX_SNAPSHOT_SPINS = 1000;
+  // A cycle this many periods long means at least one sample slot was missed
+  private static final double OVERRUN_PERIODS = 1.5;
+
   private final Lock signalsLock =
       new ReentrantLock(); // Prevents conflicts when registering signals
   private BaseStatusSignal[] phoenixSignals = new BaseStatusSignal[0];
   private final List<DoubleSupplier> genericSignals = new ArrayList<>();
-  private final List<Queue<Double>> phoenixQueues = new ArrayList<>();
-  private final List<Queue<Double>> genericQueues = new ArrayList<>();
-  private final List<Queue<Double>> timestampQueues = new ArrayList<>();
+  private final List<DoubleRingBuffer> phoenixQueues = new ArrayList<>();
+  private final List<DoubleRingBuffer> genericQueues = new ArrayList<>();
+  private final List<DoubleRingBuffer> timestampQueues = new ArrayList<>();
+  private final List<BaseStatusSignal> timestampSources = new ArrayList<>(); // Null for cycle time
+
+  // Phoenix timestamps are relative to Utils.getCurrentTimeSeconds(), not the FPGA clock
+  private double phoenixToFPGAOffset = 0.0;
+  private boolean offsetCalibrated = false;
+
+  // Seqlock over frame publication. Odd while a frame is being written to the queues, otherwise
+  // twice the number of frames published.
+  private final AtomicLong frameSequence = new AtomicLong();
+  private final AtomicLong droppedFrames = new AtomicLong();
+  private long snapshotEnd = 0;
+  private long snapshotRetries = 0;
+
+  // Cycle timing, in milliseconds
+  private final AtomicHistogram periodHistogram = new AtomicHistogram(0.0, 20.0, 40);
+  private final AtomicHistogram jitterHistogram = new AtomicHistogram(0.0, 5.0, 20);
+  private final AtomicHistogram overrunHistogram = new AtomicHistogram(0.0, 20.0, 20);
+  private final AtomicLong overruns = new AtomicLong();
+
+  private volatile double requestedFrequency = Drive.ODOMETRY_FREQUENCY;
+  private double frequency = Drive.ODOMETRY_FREQUENCY; // Only used by the odometry thread
 
   private static boolean isCANFD =
       new CANBus(TunerConstants.DrivetrainConstants.CANBusName).isNetworkFD();
@@ -68,63 +117,162 @@ public class PhoenixOdometryThread extends Thread {
   }
 
   /** Registers a Phoenix signal to be read from the thread. */
-  public Queue<Double> registerSignal(StatusSignal<Angle> signal) {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
+  public DoubleRingBuffer registerSignal(StatusSignal<Angle> signal) {
     signalsLock.lock();
-    Drive.odometryLock.lock();
     try {
+      DoubleRingBuffer queue = makeQueue();
       BaseStatusSignal[] newSignals = new BaseStatusSignal[phoenixSignals.length + 1];
       System.arraycopy(phoenixSignals, 0, newSignals, 0, phoenixSignals.length);
       newSignals[phoenixSignals.length] = signal;
       phoenixSignals = newSignals;
       phoenixQueues.add(queue);
+      return queue;
     } finally {
       signalsLock.unlock();
-      Drive.odometryLock.unlock();
     }
-    return queue;
   }
 
   /** Registers a generic signal to be read from the thread. */
-  public Queue<Double> registerSignal(DoubleSupplier signal) {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
+  public DoubleRingBuffer registerSignal(DoubleSupplier signal) {
     signalsLock.lock();
-    Drive.odometryLock.lock();
     try {
+      DoubleRingBuffer queue = makeQueue();
       genericSignals.add(signal);
       genericQueues.add(queue);
+      return queue;
     } finally {
       signalsLock.unlock();
-      Drive.odometryLock.unlock();
     }
-    return queue;
   }
 
-  /** Returns a new queue that returns timestamp values for each sample. */
-  public Queue<Double> makeTimestampQueue() {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
-    Drive.odometryLock.lock();
+  /**
+   * Returns a new queue that returns timestamp values for each sample, estimated from the cycle
+   * time and the average CAN latency. Prefer {@link #makeTimestampQueue(BaseStatusSignal)} for
+   * Phoenix signals.
+   */
+  public DoubleRingBuffer makeTimestampQueue() {
+    return makeTimestampQueue(null);
+  }
+
+  /**
+   * Returns a new queue that returns the hardware timestamp of the given signal for each sample, in
+   * the FPGA timebase.
+   *
+   * @param signal a signal already passed to {@link #registerSignal(StatusSignal)}, or null to use
+   *     the estimated cycle time
+   */
+  public DoubleRingBuffer makeTimestampQueue(BaseStatusSignal signal) {
+    signalsLock.lock();
     try {
+      DoubleRingBuffer queue = makeQueue();
       timestampQueues.add(queue);
+      timestampSources.add(signal);
+      return queue;
     } finally {
-      Drive.odometryLock.unlock();
+      signalsLock.unlock();
     }
-    return queue;
+  }
+
+  /** Creates a queue whose sample indices line up with the frame numbers. Requires signalsLock. */
+  private DoubleRingBuffer makeQueue() {
+    return new DoubleRingBuffer(QUEUE_CAPACITY, frameSequence.get() >> 1);
+  }
+
+  /**
+   * Captures the number of frames published so far without blocking the odometry thread. Queues
+   * drained with {@link DoubleRingBuffer#drainUntil} up to {@link #getSnapshotEnd()} all return
+   * the same complete frames. Must only be called from the main thread.
+   */
+  public void takeSnapshot() {
+    long sequence = frameSequence.get();
+    // A frame is being written, which takes microseconds. Wait for it rather than leaving the
+    // newest sample for the next loop, unless the writer has been preempted mid-frame.
+    for (int spins = 0; (sequence & 1) != 0 && spins < MAX_SNAPSHOT_SPINS; spins++) {
+      snapshotRetries++;
+      Thread.onSpinWait();
+      sequence = frameSequence.get();
+    }
+    snapshotEnd = sequence >> 1; // Rounds down to the last complete frame
+  }
+
+  /** Returns the frame number one past the last frame in the latest snapshot. */
+  public long getSnapshotEnd() {
+    return snapshotEnd;
+  }
+
+  /** Returns the number of times a snapshot had to re-read the frame sequence. */
+  public long getSnapshotRetries() {
+    return snapshotRetries;
+  }
+
+  /** Returns the number of frames discarded because a consumer had fallen behind. */
+  public long getDroppedFrames() {
+    return droppedFrames.get();
+  }
+
+  /** Returns the histogram of time between cycles, in milliseconds. */
+  public AtomicHistogram getPeriodHistogram() {
+    return periodHistogram;
+  }
+
+  /** Returns the histogram of each cycle's distance from the nominal period, in milliseconds. */
+  public AtomicHistogram getJitterHistogram() {
+    return jitterHistogram;
+  }
+
+  /** Returns the histogram of how far overrunning cycles went past the period, in milliseconds. */
+  public AtomicHistogram getOverrunHistogram() {
+    return overrunHistogram;
+  }
+
+  /** Returns the number of cycles long enough to miss a sample. */
+  public long getOverruns() {
+    return overruns.get();
+  }
+
+  /**
+   * Requests a new sampling rate. The thread applies it to every registered Phoenix signal at the
+   * start of its next cycle.
+   */
+  public void setFrequency(double frequencyHz) {
+    requestedFrequency = frequencyHz;
   }
 
   @Override
   public void run() {
+    if (DriveConstants.ODOMETRY_THREAD_PRIORITY > 0) {
+      Threads.setCurrentThreadPriority(true, DriveConstants.ODOMETRY_THREAD_PRIORITY);
+    }
+
+    long periodNanos = (long) (1e9 / frequency);
+    long lastCycleNanos = System.nanoTime();
+    long nextDeadlineNanos = lastCycleNanos + periodNanos;
     while (true) {
       // Wait for updates from all signals
       signalsLock.lock();
       try {
+        double newFrequency = requestedFrequency;
+        if (newFrequency != frequency) {
+          if (phoenixSignals.length > 0) {
+            BaseStatusSignal.setUpdateFrequencyForAll(newFrequency, phoenixSignals);
+          }
+          frequency = newFrequency;
+          periodNanos = (long) (1e9 / frequency);
+          nextDeadlineNanos = lastCycleNanos + periodNanos;
+        }
+
         if (isCANFD && phoenixSignals.length > 0) {
-          BaseStatusSignal.waitForAll(2.0 / Drive.ODOMETRY_FREQUENCY, phoenixSignals);
+          BaseStatusSignal.waitForAll(2.0 / frequency, phoenixSignals);
         } else {
           // "waitForAll" does not support blocking on multiple signals with a bus
           // that is not CAN FD, regardless of Pro licensing. No reasoning for this
           // behavior is provided by the documentation.
-          Thread.sleep((long) (1000.0 / Drive.ODOMETRY_FREQUENCY));
+          sleepUntil(nextDeadlineNanos);
+          nextDeadlineNanos += periodNanos;
+          if (System.nanoTime() - nextDeadlineNanos > 0) {
+            // More than a whole period behind, skip the missed slots instead of bursting
+            nextDeadlineNanos = System.nanoTime() + periodNanos;
+          }
           if (phoenixSignals.length > 0) BaseStatusSignal.refreshAll(phoenixSignals);
         }
       } catch (InterruptedException e) {
@@ -133,8 +281,12 @@ public class PhoenixOdometryThread extends Thread {
         signalsLock.unlock();
       }
 
+      long cycleNanos = System.nanoTime();
+      recordCycle(cycleNanos - lastCycleNanos, periodNanos);
+      lastCycleNanos = cycleNanos;
+
       // Save new data to queues
-      Drive.odometryLock.lock();
+      signalsLock.lock();
       try {
         // Sample timestamp is current FPGA time minus average CAN latency
         //     Default timestamps from Phoenix are NOT compatible with
@@ -147,8 +299,16 @@ public class PhoenixOdometryThread extends Thread {
         if (phoenixSignals.length > 0) {
           timestamp -= totalLatency / phoenixSignals.length;
         }
+        updateTimebaseOffset();
+
+        // Frames are all-or-nothing so every queue stays aligned to the frame numbers
+        if (!hasRoomForFrame()) {
+          droppedFrames.incrementAndGet();
+          continue;
+        }
 
         // Add new samples to queues
+        frameSequence.incrementAndGet(); // Odd while the frame is incomplete
         for (int i = 0; i < phoenixSignals.length; i++) {
           phoenixQueues.get(i).offer(phoenixSignals[i].getValueAsDouble());
         }
@@ -156,11 +316,72 @@ public class PhoenixOdometryThread extends Thread {
           genericQueues.get(i).offer(genericSignals.get(i).getAsDouble());
         }
         for (int i = 0; i < timestampQueues.size(); i++) {
-          timestampQueues.get(i).offer(timestamp);
+          BaseStatusSignal source = timestampSources.get(i);
+          timestampQueues.get(i).offer(source == null ? timestamp : toFPGATime(source, timestamp));
         }
+        frameSequence.incrementAndGet();
       } finally {
-        Drive.odometryLock.unlock();
+        signalsLock.unlock();
       }
     }
   }
+
+  /** Sleeps until System.nanoTime() reaches the deadline, which may already have passed. */
+  private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+      Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+    }
+  }
+
+  private void recordCycle(long actualNanos, long nominalNanos) {
+    double actualMs = actualNanos / 1e6;
+    double nominalMs = nominalNanos / 1e6;
+    periodHistogram.record(actualMs);
+    jitterHistogram.record(Math.abs(actualMs - nominalMs));
+    if (actualMs > OVERRUN_PERIODS * nominalMs) {
+      overruns.incrementAndGet();
+      overrunHistogram.record(actualMs - nominalMs);
+    }
+  }
+
+  /** Measures the offset between the Phoenix and FPGA clocks and folds it into the estimate. */
+  private void updateTimebaseOffset() {
+    double fpgaBefore = RobotController.getFPGATime() / 1e6;
+    double phoenixTime = Utils.getCurrentTimeSeconds();
+    double fpgaAfter = RobotController.getFPGATime() / 1e6;
+    if (fpgaAfter - fpgaBefore > MAX_CALIBRATION_READ_SECS) {
+      return;
+    }
+
+    double offset = (fpgaBefore + fpgaAfter) / 2.0 - phoenixTime;
+    if (offsetCalibrated) {
+      phoenixToFPGAOffset += OFFSET_FILTER_GAIN * (offset - phoenixToFPGAOffset);
+    } else {
+      phoenixToFPGAOffset = offset;
+      offsetCalibrated = true;
+    }
+  }
+
+  /** Returns the signal's hardware timestamp in FPGA time, or the fallback if it has none. */
+  private double toFPGATime(BaseStatusSignal signal, double fallback) {
+    Timestamp timestamp = signal.getTimestamp();
+    if (!offsetCalibrated || !timestamp.isValid()) {
+      return fallback;
+    }
+    return timestamp.getTime() + phoenixToFPGAOffset;
+  }
+
+  private boolean hasRoomForFrame() {
+    for (int i = 0; i < phoenixQueues.size(); i++) {
+      if (phoenixQueues.get(i).remainingCapacity() == 0) return false;
+    }
+    for (int i = 0; i < genericQueues.size(); i++) {
+      if (genericQueues.get(i).remainingCapacity() == 0) return false;
+    }
+    for (int i = 0; i < timestampQueues.size(); i++) {
+      if (timestampQueues.get(i).remainingCapacity() == 0) return false;
+    }
+    return true;
+  }
 }
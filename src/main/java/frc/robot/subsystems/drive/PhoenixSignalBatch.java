@@ -0,0 +1,44 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+/**
+ * Every Phoenix signal the main loop reads from the drivetrain, refreshed together. Each IO
+ * implementation registers its signals once, {@link Drive} calls {@link #refresh()} before
+ * updating inputs, and the IO implementations then read the cached values without refreshing
+ * them again. This replaces a native call per device group with one call for the drivetrain.
+ */
+public class PhoenixSignalBatch {
+  private BaseStatusSignal[] signals = new BaseStatusSignal[0];
+
+  private static PhoenixSignalBatch instance = null;
+
+  public static PhoenixSignalBatch getInstance() {
+    if (instance == null) {
+      instance = new PhoenixSignalBatch();
+    }
+    return instance;
+  }
+
+  private PhoenixSignalBatch() {}
+
+  /** Adds signals to be refreshed every loop. */
+  public void register(BaseStatusSignal... newSignals) {
+    BaseStatusSignal[] combined = new BaseStatusSignal[signals.length + newSignals.length];
+    System.arraycopy(signals, 0, combined, 0, signals.length);
+    System.arraycopy(newSignals, 0, combined, signals.length, newSignals.length);
+    signals = combined;
+  }
+
+  /**
+   * Refreshes every registered signal in one call. Use {@link BaseStatusSignal#isAllGood} on a
+   * device's signals afterwards to check whether that device responded.
+   */
+  public StatusCode refresh() {
+    if (signals.length == 0) {
+      return StatusCode.OK;
+    }
+    return BaseStatusSignal.refreshAll(signals);
+  }
+}
@@ -0,0 +1,336 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Swerve pose estimator that fuses wheel odometry with delayed vision measurements, equivalent to
+ * WPILib's SwerveDrivePoseEstimator but written with primitive math so updates don't allocate.
+ *
+ * <p>The estimate is the raw odometry pose with a rigid correction applied on top. Every odometry
+ * sample is stored in a fixed-capacity ring along with the correction in effect at that time. A
+ * vision measurement binary searches the ring for its timestamp, blends with the estimate at that
+ * moment using the same steady-state Kalman gain as WPILib, and re-applies the new correction to
+ * every sample after it.
+ */
+public class SwervePoseEstimator {
+  private static final double HISTORY_SECONDS = 1.5;
+  // About 2 s of samples at the 250 Hz top odometry rate, which leaves headroom over
+  // HISTORY_SECONDS for samples that arrive bunched together
+  private static final int HISTORY_CAPACITY = 512;
+  private static final double[] DEFAULT_STATE_STD_DEVS = {0.1, 0.1, 0.1};
+
+  // Forward kinematics rows mapping interleaved module displacements to chassis x, y, and theta
+  private final double[] forwardX = new double[8];
+  private final double[] forwardY = new double[8];
+  private final double[] forwardTheta = new double[8];
+  private final double[] stateVariances = new double[3];
+
+  // Odometry state
+  private final double[] previousDistances = new double[4];
+  private double gyroOffset;
+  private double odometryX;
+  private double odometryY;
+  private double odometryTheta;
+
+  // Correction mapping the odometry frame to the estimate, applied as correction * odometry
+  private double correctionX;
+  private double correctionY;
+  private double correctionTheta;
+
+  // History ring, one entry per odometry sample
+  private final double[] historyTimestamps = new double[HISTORY_CAPACITY];
+  private final double[] historyOdometryX = new double[HISTORY_CAPACITY];
+  private final double[] historyOdometryY = new double[HISTORY_CAPACITY];
+  private final double[] historyOdometryTheta = new double[HISTORY_CAPACITY];
+  private final double[] historyCorrectionX = new double[HISTORY_CAPACITY];
+  private final double[] historyCorrectionY = new double[HISTORY_CAPACITY];
+  private final double[] historyCorrectionTheta = new double[HISTORY_CAPACITY];
+  private int historyStart = 0;
+  private int historySize = 0;
+
+  private Pose2d cachedEstimate = null;
+
+  /**
+   * Constructs a pose estimator with WPILib's default state standard deviations of 0.1 meters and
+   * 0.1 radians.
+   *
+   * @param moduleTranslations the location of each module relative to the robot center
+   * @param gyroAngleRad the current gyro angle in radians
+   * @param modulePositions the current position of each module
+   * @param initialPose the starting pose
+   */
+  public SwervePoseEstimator(
+      Translation2d[] moduleTranslations,
+      double gyroAngleRad,
+      SwerveModulePosition[] modulePositions,
+      Pose2d initialPose) {
+    SimpleMatrix inverseKinematics = new SimpleMatrix(8, 3);
+    for (int i = 0; i < 4; i++) {
+      inverseKinematics.setRow(i * 2, 0, 1, 0, -moduleTranslations[i].getY());
+      inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, moduleTranslations[i].getX());
+    }
+    SimpleMatrix forwardKinematics = inverseKinematics.pseudoInverse();
+    for (int i = 0; i < 8; i++) {
+      forwardX[i] = forwardKinematics.get(0, i);
+      forwardY[i] = forwardKinematics.get(1, i);
+      forwardTheta[i] = forwardKinematics.get(2, i);
+    }
+    for (int i = 0; i < 3; i++) {
+      stateVariances[i] = DEFAULT_STATE_STD_DEVS[i] * DEFAULT_STATE_STD_DEVS[i];
+    }
+
+    resetPosition(gyroAngleRad, modulePositions, initialPose);
+  }
+
+  /**
+   * Returns the coefficients that map module displacements (distance times the cos and sin of each
+   * module angle, interleaved) to chassis rotation.
+   */
+  public double[] getTwistThetaCoefficients() {
+    return forwardTheta.clone();
+  }
+
+  /**
+   * Resets the estimate to the given pose and clears the history.
+   *
+   * @param gyroAngleRad the current gyro angle in radians
+   * @param modulePositions the current position of each module
+   * @param pose the pose to reset to
+   */
+  public void resetPosition(
+      double gyroAngleRad, SwerveModulePosition[] modulePositions, Pose2d pose) {
+    for (int i = 0; i < 4; i++) {
+      previousDistances[i] = modulePositions[i].distanceMeters;
+    }
+    gyroOffset = pose.getRotation().getRadians() - gyroAngleRad;
+    odometryX = pose.getX();
+    odometryY = pose.getY();
+    odometryTheta = pose.getRotation().getRadians();
+    correctionX = 0.0;
+    correctionY = 0.0;
+    correctionTheta = 0.0;
+    historyStart = 0;
+    historySize = 0;
+    cachedEstimate = pose;
+  }
+
+  /**
+   * Integrates an odometry sample. Does not allocate.
+   *
+   * @param timestampSeconds the time of the sample in the FPGA timebase
+   * @param gyroAngleRad the gyro angle in radians at the time of the sample
+   * @param modulePositions the position of each module at the time of the sample
+   */
+  public void updateWithTime(
+      double timestampSeconds, double gyroAngleRad, SwerveModulePosition[] modulePositions) {
+    // Chassis translation from the module deltas
+    double twistX = 0.0;
+    double twistY = 0.0;
+    for (int i = 0; i < 4; i++) {
+      double delta = modulePositions[i].distanceMeters - previousDistances[i];
+      double deltaX = delta * modulePositions[i].angle.getCos();
+      double deltaY = delta * modulePositions[i].angle.getSin();
+      twistX += forwardX[i * 2] * deltaX + forwardX[i * 2 + 1] * deltaY;
+      twistY += forwardY[i * 2] * deltaX + forwardY[i * 2 + 1] * deltaY;
+      previousDistances[i] = modulePositions[i].distanceMeters;
+    }
+
+    // Chassis rotation from the gyro, then integrate along the arc (Pose2d.exp)
+    double theta = gyroAngleRad + gyroOffset;
+    double twistTheta = MathUtil.angleModulus(theta - odometryTheta);
+    double sinTheta = Math.sin(twistTheta);
+    double cosTheta = Math.cos(twistTheta);
+    double s;
+    double c;
+    if (Math.abs(twistTheta) < 1e-9) {
+      s = 1.0 - twistTheta * twistTheta / 6.0;
+      c = 0.5 * twistTheta;
+    } else {
+      s = sinTheta / twistTheta;
+      c = (1.0 - cosTheta) / twistTheta;
+    }
+    double localX = twistX * s - twistY * c;
+    double localY = twistX * c + twistY * s;
+    double cosOdometry = Math.cos(odometryTheta);
+    double sinOdometry = Math.sin(odometryTheta);
+    odometryX += localX * cosOdometry - localY * sinOdometry;
+    odometryY += localX * sinOdometry + localY * cosOdometry;
+    odometryTheta = theta;
+
+    recordSample(timestampSeconds);
+    cachedEstimate = null;
+  }
+
+  /**
+   * Adds a vision measurement, correcting the estimate at the time it was captured and carrying the
+   * correction forward to the present. Measurements older than the history are ignored.
+   *
+   * @param visionRobotPoseMeters the robot pose measured by vision
+   * @param timestampSeconds the capture time of the measurement in the FPGA timebase
+   * @param visionMeasurementStdDevs standard deviations of the measurement in x, y, and theta
+   */
+  public void addVisionMeasurement(
+      Pose2d visionRobotPoseMeters,
+      double timestampSeconds,
+      Matrix<N3, N1> visionMeasurementStdDevs) {
+    if (historySize == 0) {
+      return;
+    }
+    double latestTimestamp = historyTimestamps[physicalIndex(historySize - 1)];
+    if (timestampSeconds < historyTimestamps[historyStart]
+        || timestampSeconds < latestTimestamp - HISTORY_SECONDS) {
+      return;
+    }
+
+    // Odometry pose and correction at the measurement time
+    int index = findSampleAtOrBefore(timestampSeconds);
+    int entry = physicalIndex(index);
+    double sampleX = historyOdometryX[entry];
+    double sampleY = historyOdometryY[entry];
+    double sampleTheta = historyOdometryTheta[entry];
+    if (index < historySize - 1) {
+      int nextEntry = physicalIndex(index + 1);
+      double t =
+          (timestampSeconds - historyTimestamps[entry])
+              / (historyTimestamps[nextEntry] - historyTimestamps[entry]);
+      sampleX += (historyOdometryX[nextEntry] - sampleX) * t;
+      sampleY += (historyOdometryY[nextEntry] - sampleY) * t;
+      sampleTheta += MathUtil.angleModulus(historyOdometryTheta[nextEntry] - sampleTheta) * t;
+    }
+    double sampleCorrectionTheta = historyCorrectionTheta[entry];
+    double cosCorrection = Math.cos(sampleCorrectionTheta);
+    double sinCorrection = Math.sin(sampleCorrectionTheta);
+    double estimateX =
+        historyCorrectionX[entry] + sampleX * cosCorrection - sampleY * sinCorrection;
+    double estimateY =
+        historyCorrectionY[entry] + sampleX * sinCorrection + sampleY * cosCorrection;
+    double estimateTheta = sampleCorrectionTheta + sampleTheta;
+
+    // Twist from the estimate to the measurement (Pose2d.log), in the estimate's frame
+    double cosEstimate = Math.cos(estimateTheta);
+    double sinEstimate = Math.sin(estimateTheta);
+    double offsetX = visionRobotPoseMeters.getX() - estimateX;
+    double offsetY = visionRobotPoseMeters.getY() - estimateY;
+    double relativeX = offsetX * cosEstimate + offsetY * sinEstimate;
+    double relativeY = -offsetX * sinEstimate + offsetY * cosEstimate;
+    double relativeTheta =
+        MathUtil.angleModulus(visionRobotPoseMeters.getRotation().getRadians() - estimateTheta);
+    double halfTheta = relativeTheta / 2.0;
+    double cosMinusOne = Math.cos(relativeTheta) - 1.0;
+    double halfThetaByTanOfHalfTheta;
+    if (Math.abs(cosMinusOne) < 1e-9) {
+      halfThetaByTanOfHalfTheta = 1.0 - relativeTheta * relativeTheta / 12.0;
+    } else {
+      halfThetaByTanOfHalfTheta = -(halfTheta * Math.sin(relativeTheta)) / cosMinusOne;
+    }
+    double twistX = relativeX * halfThetaByTanOfHalfTheta + relativeY * halfTheta;
+    double twistY = -relativeX * halfTheta + relativeY * halfThetaByTanOfHalfTheta;
+
+    // Scale by the Kalman gain and step the estimate along it (Pose2d.exp)
+    twistX *= getVisionGain(0, visionMeasurementStdDevs);
+    twistY *= getVisionGain(1, visionMeasurementStdDevs);
+    double twistTheta = relativeTheta * getVisionGain(2, visionMeasurementStdDevs);
+    double s;
+    double c;
+    if (Math.abs(twistTheta) < 1e-9) {
+      s = 1.0 - twistTheta * twistTheta / 6.0;
+      c = 0.5 * twistTheta;
+    } else {
+      s = Math.sin(twistTheta) / twistTheta;
+      c = (1.0 - Math.cos(twistTheta)) / twistTheta;
+    }
+    double localX = twistX * s - twistY * c;
+    double localY = twistX * c + twistY * s;
+    double correctedX = estimateX + localX * cosEstimate - localY * sinEstimate;
+    double correctedY = estimateY + localX * sinEstimate + localY * cosEstimate;
+    double correctedTheta = estimateTheta + twistTheta;
+
+    // New correction maps the odometry pose at the measurement time onto the corrected pose
+    correctionTheta = correctedTheta - sampleTheta;
+    double cosNew = Math.cos(correctionTheta);
+    double sinNew = Math.sin(correctionTheta);
+    correctionX = correctedX - (sampleX * cosNew - sampleY * sinNew);
+    correctionY = correctedY - (sampleX * sinNew + sampleY * cosNew);
+
+    // Re-apply it to every later sample so older measurements arriving afterward see it
+    for (int i = index + 1; i < historySize; i++) {
+      int laterEntry = physicalIndex(i);
+      historyCorrectionX[laterEntry] = correctionX;
+      historyCorrectionY[laterEntry] = correctionY;
+      historyCorrectionTheta[laterEntry] = correctionTheta;
+    }
+    cachedEstimate = null;
+  }
+
+  /** Returns the current pose estimate. Only allocates when the estimate has changed. */
+  public Pose2d getEstimatedPosition() {
+    if (cachedEstimate == null) {
+      double cosCorrection = Math.cos(correctionTheta);
+      double sinCorrection = Math.sin(correctionTheta);
+      cachedEstimate =
+          new Pose2d(
+              correctionX + odometryX * cosCorrection - odometryY * sinCorrection,
+              correctionY + odometryX * sinCorrection + odometryY * cosCorrection,
+              new Rotation2d(correctionTheta + odometryTheta));
+    }
+    return cachedEstimate;
+  }
+
+  private double getVisionGain(int row, Matrix<N3, N1> visionMeasurementStdDevs) {
+    double q = stateVariances[row];
+    if (q == 0.0) {
+      return 0.0;
+    }
+    double stdDev = visionMeasurementStdDevs.get(row, 0);
+    return q / (q + Math.sqrt(q * stdDev * stdDev));
+  }
+
+  private void recordSample(double timestampSeconds) {
+    int entry;
+    if (historySize > 0 && timestampSeconds <= historyTimestamps[physicalIndex(historySize - 1)]) {
+      // Keep timestamps strictly increasing for the binary search
+      entry = physicalIndex(historySize - 1);
+    } else if (historySize < HISTORY_CAPACITY) {
+      entry = physicalIndex(historySize);
+      historySize++;
+      historyTimestamps[entry] = timestampSeconds;
+    } else {
+      entry = historyStart; // Overwrite the oldest sample
+      historyStart = (historyStart + 1) % HISTORY_CAPACITY;
+      historyTimestamps[entry] = timestampSeconds;
+    }
+    historyOdometryX[entry] = odometryX;
+    historyOdometryY[entry] = odometryY;
+    historyOdometryTheta[entry] = odometryTheta;
+    historyCorrectionX[entry] = correctionX;
+    historyCorrectionY[entry] = correctionY;
+    historyCorrectionTheta[entry] = correctionTheta;
+  }
+
+  /** Returns the logical index of the newest sample at or before the timestamp. */
+  private int findSampleAtOrBefore(double timestampSeconds) {
+    int low = 0;
+    int high = historySize - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (historyTimestamps[physicalIndex(mid)] <= timestampSeconds) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private int physicalIndex(int logicalIndex) {
+    return (historyStart + logicalIndex) % HISTORY_CAPACITY;
+  }
+}
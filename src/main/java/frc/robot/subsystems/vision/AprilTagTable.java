@@ -0,0 +1,61 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.units.Units;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.subsystems.vision.Vision.TagInfo;
+
+/**
+ * Field tag geometry indexed by tag id, built once from {@link VisionConstants#aprilTagFieldLayout}
+ * so lookups are an array access instead of a search of the layout that allocates an Optional.
+ * Every getter returns null for ids that are not on the field.
+ */
+public final class AprilTagTable {
+  private static final int SIZE = maxTagId() + 1;
+
+  private static final TagInfo[] TAG_INFOS = new TagInfo[SIZE];
+  private static final Pose2d[] SCORING_POSES = new Pose2d[SIZE];
+
+  static {
+    Transform2d scoringOffset =
+        new Transform2d(
+            DriveConstants.TAG_DISTANCE.in(Units.Meters), 0.0, Rotation2d.fromDegrees(180));
+    for (AprilTag tag : VisionConstants.aprilTagFieldLayout.getTags()) {
+      int id = tag.ID;
+      TAG_INFOS[id] = new TagInfo(id, tag.pose);
+      // Out in front of the tag along its face normal, facing back towards it
+      SCORING_POSES[id] = tag.pose.toPose2d().transformBy(scoringOffset);
+    }
+  }
+
+  private AprilTagTable() {}
+
+  private static int maxTagId() {
+    int maxId = 0;
+    for (AprilTag tag : VisionConstants.aprilTagFieldLayout.getTags()) {
+      maxId = Math.max(maxId, tag.ID);
+    }
+    return maxId;
+  }
+
+  private static boolean isValid(int id) {
+    return id >= 0 && id < SIZE && TAG_INFOS[id] != null;
+  }
+
+  /** Returns the shared tag info for an id. */
+  public static TagInfo getTagInfo(int id) {
+    return isValid(id) ? TAG_INFOS[id] : null;
+  }
+
+  /**
+   * Returns the robot pose for scoring on the tag, {@link DriveConstants#TAG_DISTANCE} out along
+   * the tag's face normal and facing the tag.
+   */
+  public static Pose2d getScoringPose(int id) {
+    return isValid(id) ? SCORING_POSES[id] : null;
+  }
+}
@@ -5,14 +5,19 @@ import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.units.Units;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.VisionConstants;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
+import org.littletonrobotics.junction.Logger;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
 import org.photonvision.PhotonPoseEstimator;
@@ -20,19 +25,67 @@ import org.photonvision.PhotonPoseEstimator.PoseStrategy;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
+/**
+ * Reads AprilTag results from both cameras. Each camera has its own background worker that decodes
+ * results, runs its pose estimator, and filters the estimates, so none of that work happens in the
+ * main loop. Finished estimates and seen tags are passed back through lock-free mailboxes that
+ * {@link #periodic()} drains into the drivetrain.
+ *
+ * <p>Every unread frame is estimated, not just the newest, and estimates from both cameras are
+ * fused in capture order. Estimates go through a single pass of filters over their targets, and
+ * the number rejected by each filter is logged.
+ */
 public class Vision extends SubsystemBase {
 
   /** static class wrapping a pose estimate with standard derivations for position and rotation */
   public static record PoseEstimate(EstimatedRobotPose estimatedPose, Matrix<N3, N1> standardDev) {}
-  /** static class wrapping a pose estimate, Photon Camera name, and pose estimate error */
-  public static record EstimateAndInfo(
-      EstimatedRobotPose visionEstimate, String cameraName, double ambiguity) {}
 
   /** static class containing Photon Camera and corresponding Photon Pose Estimator */
   public static record CamToEstimator(PhotonCamera photonCamera, PhotonPoseEstimator estimator) {}
 
-  /** Tag id and tag Pose3d on field */
-  public static record TagInfo(Integer tagId, Optional<Pose3d> tagPose) {}
+  /** Tag id and tag Pose3d on field, shared instances come from {@link AprilTagTable} */
+  public static record TagInfo(int tagId, Pose3d tagPose) {}
+
+  /** Filters an estimate must pass, in the order they are checked. */
+  enum Rejection {
+    TAG_COUNT("TagCount"),
+    HEIGHT("Height"),
+    OFF_FIELD("OffField"),
+    DISTANCE("Distance"),
+    AMBIGUITY("Ambiguity"),
+    PITCH("Pitch"),
+    ROLL("Roll");
+
+    private static final Rejection[] ALL = values();
+    private final String logKey;
+
+    Rejection(String name) {
+      logKey = "Vision/Rejections/" + name;
+    }
+  }
+
+  /** Values computed while filtering an estimate, reused by each camera's worker. */
+  static class EstimateMetrics {
+    int tagCount;
+    double maxDistance;
+    double maxAmbiguity;
+  }
+
+  // Filter thresholds, converted from units once
+  private static final double MAX_AMBIGUITY = 0.25;
+  private static final double MAX_TILT_RADIANS = 0.2;
+  private static final double MIN_CAM_DIST_METERS =
+      VisionConstants.minCamDistToTag.in(Units.Meters);
+  private static final double MAX_CAM_DIST_METERS =
+      VisionConstants.maxCamDistToTag.in(Units.Meters);
+  private static final double MAX_VERT_DISP_METERS = VisionConstants.maxVertDisp.in(Units.Meters);
+  private static final double FIELD_WIDTH_METERS = VisionConstants.kFieldWidth.in(Units.Meters);
+  private static final double FIELD_HEIGHT_METERS = VisionConstants.kFieldHeight.in(Units.Meters);
+
+  private static final Comparator<PhotonPipelineResult> RESULT_ORDER =
+      Comparator.comparingDouble(PhotonPipelineResult::getTimestampSeconds);
+  private static final Comparator<PoseEstimate> ESTIMATE_ORDER =
+      Comparator.comparingDouble(poseEstimate -> poseEstimate.estimatedPose().timestampSeconds);
 
   private List<CamToEstimator> cameras;
   private final Consumer<PoseEstimate> dtUpdateEstimate;
@@ -52,6 +105,16 @@ public class Vision extends SubsystemBase {
           VisionConstants.robotToCamTwo);
   private List<TagInfo> bestTags = new ArrayList<>();
 
+  // Written by the camera workers, drained by the main loop
+  private final Queue<PoseEstimate> estimateMailbox = new ConcurrentLinkedQueue<>();
+  private final Queue<TagInfo> tagMailbox = new ConcurrentLinkedQueue<>();
+  private final List<Notifier> cameraWorkers = new ArrayList<>();
+  private final List<PoseEstimate> pendingEstimates = new ArrayList<>();
+
+  // Filter results, counted by the camera workers
+  private final AtomicLongArray rejectionCounts = new AtomicLongArray(Rejection.ALL.length);
+  private final AtomicLong acceptedCount = new AtomicLong();
+
   public Vision(Consumer<PoseEstimate> dtUpdateEstimate) {
     this.cameras =
         List.of(
@@ -60,135 +123,138 @@ public class Vision extends SubsystemBase {
     this.dtUpdateEstimate = dtUpdateEstimate;
     for (final var camToEstimator : this.cameras) {
       camToEstimator.estimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+
+      EstimateMetrics metrics = new EstimateMetrics();
+      Notifier worker = new Notifier(() -> processCamera(camToEstimator, metrics));
+      worker.setName("Vision " + camToEstimator.photonCamera().getName());
+      worker.startPeriodic(VisionConstants.kCameraPollPeriodSeconds);
+      cameraWorkers.add(worker);
     }
   }
 
   @Override
   public void periodic() {
-    var allUnreadResults =
-        this.cameras.stream()
-            .flatMap(c -> c.photonCamera().getAllUnreadResults().stream())
-            .toList();
-
-    this.cameras.stream()
-        .map(c -> Vision.updateAngGetEstimate(c, allUnreadResults))
-        .filter(Objects::nonNull)
-        .flatMap(Optional::stream)
-        .filter(Objects::nonNull)
-        .filter(Vision::isUsingTwoTags)
-        .filter(Vision::zIsRight)
-        .filter(Vision::isOnField)
-        .filter(Vision::maxDistanceIsInThreshold)
-        .filter(Vision.isAmbiguityLess(0.25))
-        .filter(Vision::pitchIsInBounds)
-        .filter(Vision::rollIsInBounds)
-        .map(Vision::generatePoseEstimate)
-        .forEach(
-            dtUpdateEstimate); // updates drivetrain swerve pose estimator with vision measurement
+    // updates drivetrain swerve pose estimator with vision measurements, on the main thread,
+    // oldest first so frames from the two cameras interleave correctly
+    PoseEstimate estimate;
+    while ((estimate = estimateMailbox.poll()) != null) {
+      pendingEstimates.add(estimate);
+    }
+    pendingEstimates.sort(ESTIMATE_ORDER);
+    pendingEstimates.forEach(dtUpdateEstimate);
+    Logger.recordOutput("Vision/EstimatesApplied", pendingEstimates.size());
+    pendingEstimates.clear();
 
-    bestTags.clear(); // clear to only have latest results
-    allUnreadResults.stream()
-        .filter(result -> result.hasTargets())
-        .map(res -> res.getBestTarget())
-        .filter(Objects::nonNull)
-        .map(PhotonTrackedTarget::getFiducialId)
-        .filter(Objects::nonNull)
-        .map(tagId -> new TagInfo(tagId, VisionConstants.aprilTagFieldLayout.getTagPose(tagId)))
-        .forEach(bestTags::add);
-  }
+    Logger.recordOutput("Vision/Accepted", acceptedCount.get());
+    for (Rejection rejection : Rejection.ALL) {
+      Logger.recordOutput(rejection.logKey, rejectionCounts.get(rejection.ordinal()));
+    }
 
-  public List<TagInfo> getBestTags() {
-    return this.bestTags;
+    bestTags.clear(); // clear to only have latest results
+    TagInfo tag;
+    while ((tag = tagMailbox.poll()) != null) {
+      bestTags.add(tag);
+    }
   }
 
-  private static PoseEstimate generatePoseEstimate(EstimateAndInfo estimateAndInfo) {
-    double maxDistance =
-        estimateAndInfo.visionEstimate.targetsUsed.stream()
-            .mapToDouble(target -> target.getBestCameraToTarget().getTranslation().getNorm())
-            .max()
-            .orElse(0.0);
+  /** Runs on a camera's worker thread, and is the only user of that camera and its estimator. */
+  private void processCamera(CamToEstimator camToEstimator, EstimateMetrics metrics) {
+    var unreadResults = camToEstimator.photonCamera().getAllUnreadResults();
+    if (unreadResults.isEmpty()) {
+      return;
+    }
 
-    final var stdDevs =
-        VisionConstants.kMultiTagStdDevs
-            .times(maxDistance)
-            .times(4 / Math.pow(estimateAndInfo.visionEstimate.targetsUsed.size(), 2));
-    return new PoseEstimate(estimateAndInfo.visionEstimate, stdDevs);
-  }
+    // Run every frame through this camera's estimator in capture order
+    unreadResults.sort(RESULT_ORDER);
+    for (int i = 0; i < unreadResults.size(); i++) {
+      PhotonPipelineResult result = unreadResults.get(i);
+      if (!result.hasTargets()) {
+        continue;
+      }
 
-  private static Optional<EstimateAndInfo> updateAngGetEstimate(
-      CamToEstimator camToEstimator, List<PhotonPipelineResult> results) {
-    if (!results.isEmpty()) {
-      final var latestResult = results.get(results.size() - 1);
-      if (!latestResult.hasTargets()) {
-        return Optional.empty();
+      TagInfo tagInfo = AprilTagTable.getTagInfo(result.getBestTarget().getFiducialId());
+      if (tagInfo != null) {
+        tagMailbox.offer(tagInfo);
       }
 
-      final var estimatedPose = camToEstimator.estimator.update(latestResult);
-      if (estimatedPose.isEmpty()) {
-        return Optional.empty();
+      Optional<EstimatedRobotPose> estimate = camToEstimator.estimator.update(result);
+      if (estimate.isEmpty()) {
+        continue;
+      }
+      Rejection rejection = check(estimate.get(), metrics);
+      if (rejection != null) {
+        rejectionCounts.incrementAndGet(rejection.ordinal());
+        continue;
       }
-      final var ambiguity = latestResult.getBestTarget().getPoseAmbiguity();
-      return Optional.of(
-          new EstimateAndInfo(
-              estimatedPose.get(), camToEstimator.photonCamera().getName(), ambiguity));
-    } else {
-      return Optional.empty();
+      acceptedCount.incrementAndGet();
+      estimateMailbox.offer(generatePoseEstimate(estimate.get(), metrics));
     }
   }
 
-  private static Predicate<EstimateAndInfo> isAmbiguityLess(double maxAmbiguity) {
-    return estimateAndInfo ->
-        estimateAndInfo.visionEstimate.targetsUsed.stream()
-            .allMatch(trackedTarget -> trackedTarget.getPoseAmbiguity() < maxAmbiguity);
+  public List<TagInfo> getBestTags() {
+    return this.bestTags;
   }
 
-  private static boolean isUsingTwoTags(EstimateAndInfo estimateAndInfo) {
-    return estimateAndInfo.visionEstimate.targetsUsed.size() >= 2;
+  static PoseEstimate generatePoseEstimate(
+      EstimatedRobotPose estimate, EstimateMetrics metrics) {
+    final var stdDevs =
+        VisionConstants.kMultiTagStdDevs
+            .times(metrics.maxDistance)
+            .times(4.0 / (metrics.tagCount * metrics.tagCount));
+    return new PoseEstimate(estimate, stdDevs);
   }
 
   /**
-   * Whether max distance to target from current pose falls in range, measured in meters, for
-   * accurate readings
+   * Runs every filter over the estimate in one pass, filling in its metrics along the way.
+   *
+   * @return the first filter the estimate fails, or null if it passes all of them
    */
-  private static boolean maxDistanceIsInThreshold(EstimateAndInfo estimateAndInfo) {
-    double maxDistance =
-        estimateAndInfo.visionEstimate.targetsUsed.stream()
-            .mapToDouble(target -> target.getBestCameraToTarget().getTranslation().getNorm())
-            .max()
-            .orElse(0.0);
-
-    return VisionConstants.minCamDistToTag.in(Units.Meters) < maxDistance
-        && maxDistance < VisionConstants.maxCamDistToTag.in(Units.Meters);
+  static Rejection check(EstimatedRobotPose estimate, EstimateMetrics metrics) {
+    var targets = estimate.targetsUsed;
+    metrics.tagCount = targets.size();
+    if (metrics.tagCount < 2) {
+      return Rejection.TAG_COUNT;
+    }
+
+    Pose3d pose = estimate.estimatedPose;
+    if (Math.abs(pose.getZ()) >= MAX_VERT_DISP_METERS) {
+      return Rejection.HEIGHT;
+    }
+    if (!isOnField(pose)) {
+      return Rejection.OFF_FIELD;
+    }
+
+    // Max distance to target falls in range, measured in meters, for accurate readings
+    metrics.maxDistance = 0.0;
+    metrics.maxAmbiguity = 0.0;
+    for (int i = 0; i < metrics.tagCount; i++) {
+      PhotonTrackedTarget target = targets.get(i);
+      metrics.maxDistance =
+          Math.max(metrics.maxDistance, target.getBestCameraToTarget().getTranslation().getNorm());
+      metrics.maxAmbiguity = Math.max(metrics.maxAmbiguity, target.getPoseAmbiguity());
+    }
+    if (metrics.maxDistance <= MIN_CAM_DIST_METERS || metrics.maxDistance >= MAX_CAM_DIST_METERS) {
+      return Rejection.DISTANCE;
+    }
+    if (metrics.maxAmbiguity >= MAX_AMBIGUITY) {
+      return Rejection.AMBIGUITY;
+    }
+
+    if (Math.abs(pose.getRotation().getX()) >= MAX_TILT_RADIANS) {
+      return Rejection.PITCH;
+    }
+    if (Math.abs(pose.getRotation().getY()) >= MAX_TILT_RADIANS) {
+      return Rejection.ROLL;
+    }
+    return null;
   }
 
   /** Is the robot on the field based on its current pose */
   private static boolean isOnField(Pose3d pose) {
     return pose.getX() >= 0.0
-        && pose.getX() <= VisionConstants.kFieldWidth.in(Units.Meters)
+        && pose.getX() <= FIELD_WIDTH_METERS
         && pose.getY() >= 0.0
-        && pose.getY() <= VisionConstants.kFieldHeight.in(Units.Meters);
-  }
-
-  /**
-   * Checks if the robot is on the field based on camera's pose data. Should be used when camera
-   * readings are available.
-   */
-  private static boolean isOnField(EstimateAndInfo estimateAndInfo) {
-    return isOnField(estimateAndInfo.visionEstimate.estimatedPose);
-  }
-
-  /** Checks if robot pose estimate has a vertical displacement below specified threshold */
-  private static boolean zIsRight(EstimateAndInfo estimateAndInfo) {
-    return Math.abs(estimateAndInfo.visionEstimate.estimatedPose.getZ())
-        < VisionConstants.maxVertDisp.in(Units.Meters);
-  }
-
-  private static boolean pitchIsInBounds(EstimateAndInfo estimateAndInfo) {
-    return Math.abs(estimateAndInfo.visionEstimate.estimatedPose.getRotation().getX()) < 0.2;
-  }
-
-  private static boolean rollIsInBounds(EstimateAndInfo estimateAndInfo) {
-    return Math.abs(estimateAndInfo.visionEstimate.estimatedPose.getRotation().getY()) < 0.2;
+        && pose.getY() <= FIELD_HEIGHT_METERS;
   }
 
   public PhotonCamera getCameraOne() {
@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bin histogram that one thread can record into while another reads it, without locking.
+ * Values below the range land in the first bin and values above it land in the last bin.
+ */
+public class AtomicHistogram {
+  private final double min;
+  private final double binWidth;
+  private final AtomicLongArray counts;
+
+  /**
+   * @param min the lower edge of the first bin
+   * @param max the upper edge of the last regular bin, anything above goes in an overflow bin
+   * @param binCount the number of regular bins between min and max
+   */
+  public AtomicHistogram(double min, double max, int binCount) {
+    this.min = min;
+    this.binWidth = (max - min) / binCount;
+    counts = new AtomicLongArray(binCount + 1);
+  }
+
+  /** Adds a value to its bin. */
+  public void record(double value) {
+    int bin = (int) ((value - min) / binWidth);
+    counts.incrementAndGet(Math.max(0, Math.min(bin, counts.length() - 1)));
+  }
+
+  /** Returns the number of bins, including the overflow bin. */
+  public int getBinCount() {
+    return counts.length();
+  }
+
+  /**
+   * Moves the count in every bin into the given array and zeroes the bin, so each call returns
+   * only the values recorded since the last one. Each bin is swapped atomically, so a value
+   * recorded concurrently is counted in either this call or the next, never lost.
+   *
+   * @param out receives the counts, with the overflow bin last; must hold {@link #getBinCount()}
+   */
+  public void drainCounts(long[] out) {
+    for (int i = 0; i < out.length; i++) {
+      out[i] = counts.getAndSet(i, 0);
+    }
+  }
+}
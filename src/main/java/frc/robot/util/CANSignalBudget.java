@@ -0,0 +1,208 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import frc.robot.generated.TunerConstants;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Central registry of every Phoenix status signal on the drivetrain CAN bus. Devices register the
+ * signals they read along with the rate they would like and how important they are, then {@link
+ * #apply()} picks the actual rates so the projected bus load stays under {@link
+ * #TARGET_UTILIZATION}, taking bandwidth from the least important signals first.
+ *
+ * <p>The load model assumes Phoenix packs each device's signals that share a rate into as few
+ * frames as fit, and accounts for the larger, faster data phase of CAN FD frames.
+ */
+public class CANSignalBudget {
+  /** Signal importance, from most to least important. */
+  public enum Priority {
+    /** High-rate signals owned by the odometry thread, which are never reduced. */
+    ODOMETRY,
+    /** Signals read by the main loop for closed-loop control. */
+    CONTROL,
+    /** Signals that are only logged. */
+    TELEMETRY
+  }
+
+  public static final double TARGET_UTILIZATION = 0.7;
+  // Phoenix rejects update frequencies below this, other than 0 which disables the signal
+  private static final double MIN_FREQUENCY = 4.0;
+  private static final int DEFAULT_PAYLOAD_BYTES = 4;
+
+  // Bus timing. Extended (29-bit) frames, with about 20% added for bit stuffing.
+  private static final double NOMINAL_BITRATE = 1e6;
+  private static final double FD_DATA_BITRATE = 8e6;
+  private static final double STUFFING = 1.2;
+  private static final int CLASSIC_MAX_PAYLOAD = 8;
+  private static final int FD_MAX_PAYLOAD = 64;
+  private static final int CLASSIC_OVERHEAD_BITS = 67;
+  private static final int FD_ARBITRATION_BITS = 41; // SOF, ID, control bits, and EOF
+  private static final int FD_DATA_OVERHEAD_BITS = 30; // DLC and CRC
+
+  private record Entry(
+      ParentDevice device,
+      BaseStatusSignal signal,
+      Priority priority,
+      double requestedHz,
+      int payloadBytes) {}
+
+  private final CANBus canBus = new CANBus(TunerConstants.DrivetrainConstants.CANBusName);
+  private final boolean isCANFD = canBus.isNetworkFD();
+  private final List<Entry> entries = new ArrayList<>();
+  private final List<ParentDevice> optimizedDevices = new ArrayList<>();
+  private double[] plannedHz = new double[0];
+  private double projectedUtilization = 0.0;
+
+  private static CANSignalBudget instance = null;
+
+  public static CANSignalBudget getInstance() {
+    if (instance == null) {
+      instance = new CANSignalBudget();
+    }
+    return instance;
+  }
+
+  private CANSignalBudget() {}
+
+  /** Registers signals of a device at the requested rate, assuming 4 byte payloads. */
+  public void register(
+      ParentDevice device, Priority priority, double requestedHz, BaseStatusSignal... signals) {
+    register(device, priority, requestedHz, DEFAULT_PAYLOAD_BYTES, signals);
+  }
+
+  /**
+   * Registers signals of a device at the requested rate.
+   *
+   * @param payloadBytes the size of each signal's value in a status frame
+   */
+  public void register(
+      ParentDevice device,
+      Priority priority,
+      double requestedHz,
+      int payloadBytes,
+      BaseStatusSignal... signals) {
+    for (BaseStatusSignal signal : signals) {
+      entries.add(new Entry(device, signal, priority, requestedHz, payloadBytes));
+    }
+  }
+
+  /**
+   * Marks devices whose unregistered signals should be turned off once rates are applied. Leave
+   * out devices that other devices depend on, like a CANcoder fused into a TalonFX.
+   */
+  public void optimizeBusUtilization(ParentDevice... devices) {
+    optimizedDevices.addAll(List.of(devices));
+  }
+
+  /** Plans rates for every registered signal, applies them, and logs the plan. */
+  public void apply() {
+    plannedHz = new double[entries.size()];
+    for (int i = 0; i < plannedHz.length; i++) {
+      plannedHz[i] = entries.get(i).requestedHz();
+    }
+
+    // Scale down the least important signals until the projected load fits
+    Priority[] priorities = Priority.values();
+    for (int p = priorities.length - 1; p > 0; p--) {
+      double load = projectLoad();
+      if (load <= TARGET_UTILIZATION) break;
+      double priorityLoad = projectLoad(priorities[p]);
+      if (priorityLoad <= 0.0) continue;
+      double scale = Math.max(0.0, (priorityLoad - (load - TARGET_UTILIZATION)) / priorityLoad);
+      for (int i = 0; i < plannedHz.length; i++) {
+        if (entries.get(i).priority() == priorities[p]) {
+          plannedHz[i] = Math.max(MIN_FREQUENCY, entries.get(i).requestedHz() * scale);
+        }
+      }
+    }
+    projectedUtilization = projectLoad();
+
+    for (int i = 0; i < plannedHz.length; i++) {
+      entries.get(i).signal().setUpdateFrequency(plannedHz[i]);
+    }
+    if (!optimizedDevices.isEmpty()) {
+      ParentDevice.optimizeBusUtilizationForAll(optimizedDevices.toArray(new ParentDevice[0]));
+    }
+
+    String[] names = new String[entries.size()];
+    for (int i = 0; i < names.length; i++) {
+      Entry entry = entries.get(i);
+      names[i] =
+          entry.device().getClass().getSimpleName()
+              + " "
+              + entry.device().getDeviceID()
+              + " "
+              + entry.signal().getName();
+    }
+    Logger.recordOutput("CAN/Budget/Signals", names);
+    Logger.recordOutput("CAN/Budget/PlannedHz", plannedHz);
+    Logger.recordOutput("CAN/Budget/IsCANFD", isCANFD);
+  }
+
+  /** Logs the projected and measured bus utilization and returns the measured value. */
+  public double periodic() {
+    double measuredUtilization = canBus.getStatus().BusUtilization;
+    Logger.recordOutput("CAN/Budget/ProjectedUtilization", projectedUtilization);
+    Logger.recordOutput("CAN/Budget/MeasuredUtilization", measuredUtilization);
+    return measuredUtilization;
+  }
+
+  /** Returns the projected bus utilization of the applied plan, from 0 to 1. */
+  public double getProjectedUtilization() {
+    return projectedUtilization;
+  }
+
+  /** Returns the projected utilization of all planned signals. */
+  private double projectLoad() {
+    return projectLoad(null);
+  }
+
+  /** Returns the projected utilization of the planned signals with a priority, or all if null. */
+  private double projectLoad(Priority priority) {
+    // Payload bytes of each device at each rate, since signals sent together share frames
+    Map<ParentDevice, Map<Double, Integer>> bytesByDevice = new HashMap<>();
+    for (int i = 0; i < plannedHz.length; i++) {
+      Entry entry = entries.get(i);
+      if (priority != null && entry.priority() != priority) continue;
+      bytesByDevice
+          .computeIfAbsent(entry.device(), device -> new HashMap<>())
+          .merge(plannedHz[i], entry.payloadBytes(), Integer::sum);
+    }
+
+    int maxPayload = isCANFD ? FD_MAX_PAYLOAD : CLASSIC_MAX_PAYLOAD;
+    double busSecondsPerSecond = 0.0;
+    for (Map<Double, Integer> groups : bytesByDevice.values()) {
+      for (Map.Entry<Double, Integer> group : groups.entrySet()) {
+        int bytes = group.getValue();
+        int fullFrames = bytes / maxPayload;
+        int remainder = bytes % maxPayload;
+        double groupSeconds = fullFrames * frameSeconds(maxPayload);
+        if (remainder > 0) groupSeconds += frameSeconds(remainder);
+        busSecondsPerSecond += group.getKey() * groupSeconds;
+      }
+    }
+    return busSecondsPerSecond;
+  }
+
+  /** Returns how long one frame with the given payload occupies the bus. */
+  private double frameSeconds(int payloadBytes) {
+    if (!isCANFD) {
+      return (CLASSIC_OVERHEAD_BITS + 8 * payloadBytes) * STUFFING / NOMINAL_BITRATE;
+    }
+    return FD_ARBITRATION_BITS * STUFFING / NOMINAL_BITRATE
+        + (FD_DATA_OVERHEAD_BITS + 8 * fdFrameLength(payloadBytes)) * STUFFING / FD_DATA_BITRATE;
+  }
+
+  /** Rounds a payload up to the next length a CAN FD frame can carry. */
+  private static int fdFrameLength(int payloadBytes) {
+    if (payloadBytes <= 8) return payloadBytes;
+    if (payloadBytes <= 24) return (payloadBytes + 3) / 4 * 4;
+    return (payloadBytes + 15) / 16 * 16;
+  }
+}
@@ -0,0 +1,489 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.Pathfinder;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Pathfinder that searches a {@link NavGrid} with A* on primitive arrays, as an alternative to
+ * {@link LocalADStarAK}. Steps cost their length, plus a penalty for ending near an obstacle taken
+ * from the grid's distance field, so paths keep away from walls where there is room to. The raw
+ * path is then shortened by skipping nodes that are in line of sight of each other.
+ *
+ * <p>Plans are made on a background thread whenever the start, goal, or obstacles change, and
+ * the resulting points are logged with {@link PathLog} so they can be replayed.
+ */
+public class DistanceFieldPathfinder implements Pathfinder {
+  private static final double SQRT_2 = Math.sqrt(2.0);
+  // Paths are penalized up to this fraction of the step length for passing closer than the target
+  private static final double CLEARANCE_WEIGHT = 2.0;
+  private static final double CLEARANCE_TARGET_METERS = 0.6;
+  // Obstacle changes farther than this from the current path don't trigger a replan
+  private static final double REPLAN_MARGIN_METERS = 1.0;
+
+  private final PlannerIO io;
+  private final ObstacleDiff obstacleDiff;
+  private long obstacleUpdatesForwarded = 0;
+  private long obstacleUpdatesSkipped = 0;
+
+  public DistanceFieldPathfinder() {
+    NavGrid grid = null;
+    try {
+      grid = NavGrid.fromDeploy();
+    } catch (IOException e) {
+      DriverStation.reportError("Failed to load navgrid: " + e.getMessage(), false);
+    }
+    io = new PlannerIO(grid);
+    obstacleDiff = grid == null ? null : new ObstacleDiff(grid);
+  }
+
+  /**
+   * Get if a new path has been calculated since the last time a path was retrieved
+   *
+   * @return True if a new path is available
+   */
+  @Override
+  public boolean isNewPathAvailable() {
+    if (!Logger.hasReplaySource()) {
+      io.updateIsNewPathAvailable();
+    }
+
+    Logger.processInputs("DistanceFieldPathfinder", io);
+
+    return io.isNewPathAvailable;
+  }
+
+  /**
+   * Get the most recently calculated path
+   *
+   * @param constraints The path constraints to use when creating the path
+   * @param goalEndState The goal end state to use when creating the path
+   * @return The PathPlannerPath created from the points calculated by the pathfinder
+   */
+  @Override
+  public PathPlannerPath getCurrentPath(PathConstraints constraints, GoalEndState goalEndState) {
+    if (!Logger.hasReplaySource()) {
+      io.updateCurrentPathPoints();
+      Logger.recordOutput("DistanceFieldPathfinder/NodesExpanded", io.planner.getNodesExpanded());
+    }
+
+    Logger.processInputs("DistanceFieldPathfinder", io);
+
+    return createPath(io.pathLog.getPositions(), constraints, goalEndState);
+  }
+
+  @Override
+  public void setStartPosition(Translation2d startPosition) {
+    if (!Logger.hasReplaySource()) {
+      io.planner.setStart(startPosition);
+    }
+  }
+
+  @Override
+  public void setGoalPosition(Translation2d goalPosition) {
+    if (!Logger.hasReplaySource()) {
+      io.planner.setGoal(goalPosition);
+    }
+  }
+
+  /**
+   * Sets the dynamic obstacles, replanning only when they cover different grid nodes near the
+   * current path than the last ones planned around.
+   */
+  @Override
+  public void setDynamicObstacles(
+      List<Pair<Translation2d, Translation2d>> obs, Translation2d currentRobotPos) {
+    if (Logger.hasReplaySource() || obstacleDiff == null) {
+      return;
+    }
+
+    int cellsChanged = obstacleDiff.update(obs);
+    Logger.recordOutput("DistanceFieldPathfinder/Obstacles/CellsChanged", cellsChanged);
+    if (cellsChanged > 0
+        && (io.pathLog.getPositions().isEmpty()
+            || obstacleDiff.changedNear(io.pathLog.getPositions(), REPLAN_MARGIN_METERS))) {
+      obstacleDiff.accept();
+      io.planner.setObstacles(obs, currentRobotPos);
+      obstacleUpdatesForwarded++;
+    } else {
+      obstacleUpdatesSkipped++;
+    }
+    Logger.recordOutput(
+        "DistanceFieldPathfinder/Obstacles/UpdatesForwarded", obstacleUpdatesForwarded);
+    Logger.recordOutput("DistanceFieldPathfinder/Obstacles/UpdatesSkipped", obstacleUpdatesSkipped);
+  }
+
+  /**
+   * Turns path points into a path, with each point's heading pointing along the path so the
+   * waypoints' control points follow it.
+   */
+  private static PathPlannerPath createPath(
+      List<Translation2d> points, PathConstraints constraints, GoalEndState goalEndState) {
+    if (points.size() < 2) {
+      return null;
+    }
+    List<Pose2d> poses = new ArrayList<>(points.size());
+    for (int i = 0; i < points.size(); i++) {
+      Translation2d previous = points.get(Math.max(0, i - 1));
+      Translation2d next = points.get(Math.min(points.size() - 1, i + 1));
+      poses.add(new Pose2d(points.get(i), next.minus(previous).getAngle()));
+    }
+    PathPlannerPath path =
+        new PathPlannerPath(
+            PathPlannerPath.waypointsFromPoses(poses), constraints, null, goalEndState);
+    // Points are already in field coordinates for the robot's alliance
+    path.preventFlipping = true;
+    return path;
+  }
+
+  /**
+   * A* over a nav grid. Scratch arrays are sized to the grid once and reused, with a search stamp
+   * per node so nothing has to be cleared between searches. Not thread safe.
+   */
+  public static class GridSearch {
+    private final NavGrid grid;
+    private final double[] cost;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] closed;
+    private int currentStamp = 0;
+    private int nodesExpanded = 0;
+
+    // Binary min-heap of nodes keyed by estimated total cost
+    private final int[] heap;
+    private final double[] heapKeys;
+    private int heapSize = 0;
+
+    public GridSearch(NavGrid grid) {
+      this.grid = grid;
+      int cells = grid.getCellCount();
+      cost = new double[cells];
+      parent = new int[cells];
+      stamp = new int[cells];
+      closed = new boolean[cells];
+      // A node can be pushed once per neighbor that improves it
+      heap = new int[cells * 8 + 1];
+      heapKeys = new double[heap.length];
+    }
+
+    public NavGrid getGrid() {
+      return grid;
+    }
+
+    /** Returns the number of nodes expanded by the last search. */
+    public int getNodesExpanded() {
+      return nodesExpanded;
+    }
+
+    /**
+     * Finds a path between two field positions. Positions inside obstacles are moved to the
+     * nearest free node.
+     *
+     * @return the path from the start to the goal, or an empty list if there is none
+     */
+    public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+      if (start.getDistance(goal) < 0.01) {
+        return Collections.emptyList();
+      }
+      int startCell = grid.nearestFree(grid.cellOf(start));
+      int goalCell = grid.nearestFree(grid.cellOf(goal));
+      if (startCell < 0 || goalCell < 0) {
+        return Collections.emptyList();
+      }
+      if (!search(startCell, goalCell)) {
+        return Collections.emptyList();
+      }
+
+      List<Integer> cells = new ArrayList<>();
+      for (int cell = goalCell; cell != startCell; cell = parent[cell]) {
+        cells.add(cell);
+      }
+      cells.add(startCell);
+      Collections.reverse(cells);
+
+      // Keep only the nodes needed to stay in line of sight, then swap in the real endpoints
+      List<Translation2d> points = new ArrayList<>();
+      points.add(start);
+      int anchor = 0;
+      while (anchor < cells.size() - 1) {
+        int next = cells.size() - 1;
+        while (next > anchor + 1 && !hasLineOfSight(cells.get(anchor), cells.get(next))) {
+          next--;
+        }
+        if (next < cells.size() - 1) {
+          int cell = cells.get(next);
+          points.add(new Translation2d(grid.centerX(cell), grid.centerY(cell)));
+        }
+        anchor = next;
+      }
+      points.add(goal);
+      return points;
+    }
+
+    private boolean search(int startCell, int goalCell) {
+      currentStamp++;
+      nodesExpanded = 0;
+      heapSize = 0;
+      int goalColumn = grid.columnOfCell(goalCell);
+      int goalRow = grid.rowOfCell(goalCell);
+      double nodeSize = grid.getNodeSize();
+      double diagonal = nodeSize * SQRT_2;
+
+      visit(startCell, -1, 0.0);
+      push(startCell, heuristic(startCell, goalColumn, goalRow));
+      while (heapSize > 0) {
+        int cell = pop();
+        if (closed[cell]) {
+          continue; // Stale entry for a node already expanded at a lower cost
+        }
+        closed[cell] = true;
+        nodesExpanded++;
+        if (cell == goalCell) {
+          return true;
+        }
+
+        int column = grid.columnOfCell(cell);
+        int row = grid.rowOfCell(cell);
+        for (int dy = -1; dy <= 1; dy++) {
+          for (int dx = -1; dx <= 1; dx++) {
+            if ((dx == 0 && dy == 0) || grid.isBlocked(column + dx, row + dy)) {
+              continue;
+            }
+            // Diagonal steps can't cut the corner of a blocked node
+            if (dx != 0
+                && dy != 0
+                && (grid.isBlocked(column + dx, row) || grid.isBlocked(column, row + dy))) {
+              continue;
+            }
+            int neighbor = grid.cellOf(column + dx, row + dy);
+            if (stamp[neighbor] == currentStamp && closed[neighbor]) {
+              continue;
+            }
+            double step = (dx != 0 && dy != 0) ? diagonal : nodeSize;
+            double newCost = cost[cell] + step * clearancePenalty(neighbor);
+            if (stamp[neighbor] != currentStamp || newCost < cost[neighbor]) {
+              visit(neighbor, cell, newCost);
+              push(neighbor, newCost + heuristic(neighbor, goalColumn, goalRow));
+            }
+          }
+        }
+      }
+      return false;
+    }
+
+    private void visit(int cell, int from, double newCost) {
+      if (stamp[cell] != currentStamp) {
+        stamp[cell] = currentStamp;
+        closed[cell] = false;
+      }
+      parent[cell] = from;
+      cost[cell] = newCost;
+    }
+
+    /** Returns the step cost multiplier for moving into a node, at least 1. */
+    private double clearancePenalty(int cell) {
+      double shortfall = 1.0 - grid.getClearance(cell) / CLEARANCE_TARGET_METERS;
+      return 1.0 + CLEARANCE_WEIGHT * Math.max(0.0, shortfall);
+    }
+
+    /** Octile distance to the goal, which never overestimates since penalties are at least 1. */
+    private double heuristic(int cell, int goalColumn, int goalRow) {
+      int dx = Math.abs(grid.columnOfCell(cell) - goalColumn);
+      int dy = Math.abs(grid.rowOfCell(cell) - goalRow);
+      return grid.getNodeSize() * (Math.max(dx, dy) + (SQRT_2 - 1.0) * Math.min(dx, dy));
+    }
+
+    /**
+     * Returns whether the straight line between two nodes only crosses free nodes that are no
+     * closer to obstacles than the endpoints, so shortening the path never makes it hug a wall.
+     */
+    private boolean hasLineOfSight(int from, int to) {
+      double minClearance =
+          Math.min(
+              CLEARANCE_TARGET_METERS, Math.min(grid.getClearance(from), grid.getClearance(to)));
+      double x0 = grid.centerX(from);
+      double y0 = grid.centerY(from);
+      double dx = grid.centerX(to) - x0;
+      double dy = grid.centerY(to) - y0;
+      int samples = (int) Math.ceil(Math.hypot(dx, dy) / (grid.getNodeSize() * 0.5));
+      for (int i = 1; i < samples; i++) {
+        double t = (double) i / samples;
+        int column = grid.columnOf(x0 + dx * t);
+        int row = grid.rowOf(y0 + dy * t);
+        if (grid.isBlocked(column, row)
+            || grid.getClearance(grid.cellOf(column, row)) < minClearance) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void push(int cell, double key) {
+      int index = heapSize++;
+      while (index > 0) {
+        int parentIndex = (index - 1) >>> 1;
+        if (heapKeys[parentIndex] <= key) break;
+        heap[index] = heap[parentIndex];
+        heapKeys[index] = heapKeys[parentIndex];
+        index = parentIndex;
+      }
+      heap[index] = cell;
+      heapKeys[index] = key;
+    }
+
+    private int pop() {
+      int top = heap[0];
+      int last = heap[--heapSize];
+      double lastKey = heapKeys[heapSize];
+      int index = 0;
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= heapSize) break;
+        if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+        if (heapKeys[child] >= lastKey) break;
+        heap[index] = heap[child];
+        heapKeys[index] = heapKeys[child];
+        index = child;
+      }
+      heap[index] = last;
+      heapKeys[index] = lastKey;
+      return top;
+    }
+  }
+
+  /** Replans on a daemon thread whenever a request changes, keeping only the latest result. */
+  private static class Planner {
+    private final GridSearch search;
+    private final Object lock = new Object();
+    private Translation2d start = null;
+    private Translation2d goal = null;
+    private List<Pair<Translation2d, Translation2d>> obstacles = null;
+    private boolean replanRequested = false;
+
+    private volatile List<Translation2d> path = Collections.emptyList();
+    private volatile boolean newPathAvailable = false;
+    private volatile int nodesExpanded = 0;
+
+    Planner(NavGrid grid) {
+      search = grid == null ? null : new GridSearch(grid);
+      if (search != null) {
+        Thread thread = new Thread(this::run, "DistanceFieldPathfinder");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+
+    void setStart(Translation2d newStart) {
+      synchronized (lock) {
+        start = newStart;
+        requestReplan();
+      }
+    }
+
+    void setGoal(Translation2d newGoal) {
+      synchronized (lock) {
+        goal = newGoal;
+        requestReplan();
+      }
+    }
+
+    void setObstacles(List<Pair<Translation2d, Translation2d>> newObstacles, Translation2d robot) {
+      synchronized (lock) {
+        obstacles = newObstacles;
+        start = robot;
+        requestReplan();
+      }
+    }
+
+    /** Returns the number of nodes the latest plan expanded. */
+    int getNodesExpanded() {
+      return nodesExpanded;
+    }
+
+    boolean isNewPathAvailable() {
+      return newPathAvailable;
+    }
+
+    /** Returns the latest path and marks it as retrieved. */
+    List<Translation2d> getPath() {
+      newPathAvailable = false;
+      return path;
+    }
+
+    private void requestReplan() {
+      replanRequested = true;
+      lock.notifyAll();
+    }
+
+    private void run() {
+      while (true) {
+        Translation2d requestStart;
+        Translation2d requestGoal;
+        List<Pair<Translation2d, Translation2d>> requestObstacles;
+        synchronized (lock) {
+          while (!replanRequested || start == null || goal == null) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+          replanRequested = false;
+          requestStart = start;
+          requestGoal = goal;
+          requestObstacles = obstacles;
+          obstacles = null;
+        }
+
+        if (requestObstacles != null) {
+          search.getGrid().setDynamicObstacles(requestObstacles);
+        }
+        path = search.findPath(requestStart, requestGoal);
+        nodesExpanded = search.getNodesExpanded();
+        newPathAvailable = true;
+      }
+    }
+  }
+
+  private static class PlannerIO implements LoggableInputs {
+    public final Planner planner;
+    public boolean isNewPathAvailable = false;
+    public final PathLog pathLog = new PathLog();
+
+    PlannerIO(NavGrid grid) {
+      planner = new Planner(grid);
+    }
+
+    @Override
+    public void toLog(LogTable table) {
+      table.put("IsNewPathAvailable", isNewPathAvailable);
+      pathLog.toLog(table);
+    }
+
+    @Override
+    public void fromLog(LogTable table) {
+      isNewPathAvailable = table.get("IsNewPathAvailable", false);
+      pathLog.fromLog(table);
+    }
+
+    public void updateIsNewPathAvailable() {
+      isNewPathAvailable = planner.isNewPathAvailable();
+    }
+
+    public void updateCurrentPathPoints() {
+      pathLog.set(planner.getPath());
+    }
+  }
+}
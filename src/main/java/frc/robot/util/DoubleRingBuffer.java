@@ -0,0 +1,113 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity ring buffer of primitive doubles for handing samples from exactly one producer
+ * thread to exactly one consumer thread. Neither side locks or allocates, so the producer never
+ * waits on the consumer and values are never boxed.
+ *
+ * <p>Every sample has an absolute index that counts up from the start index, which lets several
+ * buffers fed in lockstep be drained up to the same point.
+ */
+public class DoubleRingBuffer {
+  private final double[] buffer;
+
+  // Index of the next sample to read, only written by the consumer
+  private final AtomicLong head = new AtomicLong();
+  // Index of the next sample to write, only written by the producer
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * @param capacity the maximum number of unread samples held before new samples are rejected
+   */
+  public DoubleRingBuffer(int capacity) {
+    this(capacity, 0);
+  }
+
+  /**
+   * @param capacity the maximum number of unread samples held before new samples are rejected
+   * @param startIndex the absolute index assigned to the first sample offered
+   */
+  public DoubleRingBuffer(int capacity, long startIndex) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Ring buffer capacity must be positive");
+    }
+    buffer = new double[capacity];
+    head.set(startIndex);
+    tail.set(startIndex);
+  }
+
+  /**
+   * Adds a sample to the buffer. Must only be called from the producer thread.
+   *
+   * @return false if the buffer is full and the sample was dropped
+   */
+  public boolean offer(double value) {
+    long writeIndex = tail.get();
+    if (writeIndex - head.get() >= buffer.length) {
+      return false;
+    }
+    buffer[(int) (writeIndex % buffer.length)] = value;
+    tail.lazySet(writeIndex + 1); // Publishes the sample to the consumer
+    return true;
+  }
+
+  /**
+   * Moves as many unread samples as fit into the destination array, oldest first. Must only be
+   * called from the consumer thread.
+   *
+   * @return the number of samples copied into the start of {@code dst}
+   */
+  public int drainTo(double[] dst) {
+    return drainTo(dst, dst.length);
+  }
+
+  /**
+   * Moves up to {@code maxCount} unread samples into the destination array, oldest first. Must
+   * only be called from the consumer thread.
+   *
+   * @return the number of samples copied into the start of {@code dst}
+   */
+  public int drainTo(double[] dst, int maxCount) {
+    return drainUntil(dst, head.get() + maxCount);
+  }
+
+  /**
+   * Moves the unread samples with an absolute index below {@code endIndex} into the destination
+   * array, oldest first, stopping early if the array fills. Must only be called from the consumer
+   * thread.
+   *
+   * @return the number of samples copied into the start of {@code dst}
+   */
+  public int drainUntil(double[] dst, long endIndex) {
+    long readIndex = head.get();
+    long available = Math.min(tail.get(), endIndex) - readIndex;
+    int count = (int) Math.max(0, Math.min(available, dst.length));
+    for (int i = 0; i < count; i++) {
+      dst[i] = buffer[(int) ((readIndex + i) % buffer.length)];
+    }
+    head.lazySet(readIndex + count); // Frees the slots for the producer
+    return count;
+  }
+
+  /** Discards all unread samples. Must only be called from the consumer thread. */
+  public void clear() {
+    head.lazySet(tail.get());
+  }
+
+  /** Returns the number of unread samples. */
+  public int size() {
+    return (int) (tail.get() - head.get());
+  }
+
+  /** Returns the number of samples that can be offered before the buffer is full. */
+  public int remainingCapacity() {
+    return buffer.length - size();
+  }
+
+  /** Returns the maximum number of unread samples the buffer can hold. */
+  public int capacity() {
+    return buffer.length;
+  }
+}
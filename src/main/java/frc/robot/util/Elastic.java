@@ -31,13 +31,36 @@ public final class Elastic {
    * @param notification the {@link Notification} object containing notification details
    */
   public static void sendNotification(Notification notification) {
+    String json = toJson(notification);
+    if (json != null) {
+      sendNotificationJson(json);
+    }
+  }
+
+  /**
+   * Serializes a notification to the JSON string Elastic reads.
+   *
+   * @param notification the {@link Notification} to serialize
+   * @return the JSON string, or null if the notification couldn't be serialized
+   */
+  static String toJson(Notification notification) {
     try {
-      notificationPublisher.set(objectMapper.writeValueAsString(notification));
+      return objectMapper.writeValueAsString(notification);
     } catch (JsonProcessingException e) {
       e.printStackTrace();
+      return null;
     }
   }
 
+  /**
+   * Sends a notification that was already serialized with {@link #toJson(Notification)}.
+   *
+   * @param json the serialized notification
+   */
+  static void sendNotificationJson(String json) {
+    notificationPublisher.set(json);
+  }
+
   /**
    * Selects the tab of the dashboard with the given name. If no tab matches the name, this will
    * have no effect on the widgets or tabs in view.
@@ -1,5 +1,6 @@
 package frc.robot.util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import edu.wpi.first.util.datalog.StringLogEntry;
 import frc.robot.util.Elastic.Notification;
@@ -8,14 +9,22 @@ import java.util.Objects;
 import java.util.function.Function;
 
 /**
- * Encodes the status of a fault as well as the required resorces to update and notify the driver
+ * Encodes the status of a fault as well as the required resorces to update and notify the driver.
+ * The fault's signal is refreshed in the background by {@link FaultPoller}, so updating a fault
+ * reads the latest polled value instead of the CAN bus.
  */
 public class Fault {
   String faultName;
-  Function<Boolean, StatusSignal<Boolean>> functionToCheckFault;
+  StatusSignal<Boolean> signal;
   NotificationLevel level = NotificationLevel.WARNING;
   boolean hasFault;
   boolean hadFault;
+  // Written by the poller thread, read by the main loop
+  private volatile boolean polledFault = false;
+  // Notifications for when the fault becomes active and resolves, encoded ahead of time
+  private String templateComponentName = null;
+  private NotificationTemplate activeTemplate;
+  private NotificationTemplate resolvedTemplate;
 
   private record FaultInfo(String header, String payload) {
     public FaultInfo {
@@ -28,10 +37,10 @@ public class Fault {
    *     (e.g. TalonFX.getFault_DeviceTemp indicated whether a talon is overheated)
    */
   public Fault(Function<Boolean, StatusSignal<Boolean>> functionToCheckFault) {
-    this.functionToCheckFault = functionToCheckFault;
-    // Extracts the fault name from the name of the function
-    // getFault_hardware -> hardware
-    faultName = functionToCheckFault.toString().replace("getFault_", "");
+    this.signal = functionToCheckFault.apply(false);
+    // Extracts the fault name from the name of the signal
+    // Fault_Hardware -> Hardware
+    faultName = signal.getName().replace("Fault_", "");
   }
 
   /**
@@ -40,7 +49,7 @@ public class Fault {
    * @param name the name of the fault
    */
   public Fault(Function<Boolean, StatusSignal<Boolean>> functionToCheckFault, String name) {
-    this.functionToCheckFault = functionToCheckFault;
+    this.signal = functionToCheckFault.apply(false);
     this.faultName = name;
   }
   /**
@@ -52,8 +61,8 @@ public class Fault {
   public Fault(
       Function<Boolean, StatusSignal<Boolean>> functionToCheckFault,
       NotificationLevel notificationLevel) {
-    this.functionToCheckFault = functionToCheckFault;
-    this.faultName = functionToCheckFault.toString().replace("getFault_", "");
+    this.signal = functionToCheckFault.apply(false);
+    this.faultName = signal.getName().replace("Fault_", "");
     this.level = notificationLevel;
   }
   /**
@@ -67,35 +76,72 @@ public class Fault {
       Function<Boolean, StatusSignal<Boolean>> functionToCheckFault,
       NotificationLevel notificationLevel,
       String name) {
-    this.functionToCheckFault = functionToCheckFault;
+    this.signal = functionToCheckFault.apply(false);
     this.faultName = name;
     this.level = notificationLevel;
   }
 
-  /** Updates whether the fault is active and the state in the last call */
+  /** Updates whether the fault is active from the latest poll and the state in the last call */
   public void updateFault() {
     hadFault = hasFault;
-    hasFault = functionToCheckFault.apply(true).getValue();
+    hasFault = polledFault;
   }
 
-  private FaultInfo getFaultString(String subsystemName) {
+  /** Returns the signal that reports the fault. */
+  public BaseStatusSignal getSignal() {
+    return signal;
+  }
+
+  /**
+   * Reads the fault from its signal once {@link FaultPoller} has refreshed it. Keeps the last value
+   * if the device didn't respond.
+   */
+  void poll() {
+    if (signal.getStatus().isOK()) {
+      polledFault = signal.getValue();
+    }
+  }
+
+  private FaultInfo getFaultString(String subsystemName, boolean active) {
     return new FaultInfo(
-        subsystemName + "fault", faultName + " fault" + (hasFault ? "" : " resolved"));
+        subsystemName + " fault", faultName + " fault" + (active ? "" : " resolved"));
+  }
+
+  private Notification createNotification(String commponentName, boolean active) {
+    FaultInfo faultInfo = getFaultString(commponentName, active);
+    return new Notification(level, faultInfo.header, faultInfo.payload);
+  }
+
+  /**
+   * Encodes the fault's notifications ahead of time, so sending one for this commponent doesn't
+   * serialize anything.
+   *
+   * @param commponentName the name of the commponent that has the fault
+   */
+  void precompileNotifications(String commponentName) {
+    activeTemplate = NotificationTemplate.precompiled(createNotification(commponentName, true));
+    resolvedTemplate = NotificationTemplate.precompiled(createNotification(commponentName, false));
+    templateComponentName = commponentName;
   }
 
   /**
    * @param commponentName the name of the commponent that has the fault
    */
   public void sendNotification(String commponentName) {
-    FaultInfo faultInfo = getFaultString(commponentName);
-    Elastic.sendNotification(new Notification(level, faultInfo.header, faultInfo.payload));
+    NotificationTemplate template;
+    if (commponentName.equals(templateComponentName)) {
+      template = hasFault ? activeTemplate : resolvedTemplate;
+    } else {
+      template = new NotificationTemplate(createNotification(commponentName, hasFault));
+    }
+    NotificationDispatcher.getInstance().submit(commponentName, template);
   }
   /**
    * @param commponentName the name of the commponent that has the fault
    * @param logEntry the log to add the fault to
    */
   public void logFault(String commponentName, StringLogEntry logEntry) {
-    FaultInfo faultString = getFaultString(commponentName);
+    FaultInfo faultString = getFaultString(commponentName, hasFault);
     logEntry.append(faultString.header + ". " + faultString.payload);
   }
 }
@@ -1,88 +1,170 @@
 package frc.robot.util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import edu.wpi.first.util.datalog.DataLog;
 import edu.wpi.first.util.datalog.StringLogEntry;
 import edu.wpi.first.wpilibj.DataLogManager;
 import frc.robot.util.Elastic.Notification.NotificationLevel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
+/**
+ * Tracks the faults of one device as bitmasks, with one bit per fault in the order they were
+ * added. Health queries are a mask test, and faults that changed since the last update are found
+ * by XOR-ing the previous and current masks, so updating and querying never allocate.
+ */
 public class FaultChecker {
-  public List<Fault> warningFaults = new ArrayList<>();
-  public List<Fault> errorFaults = new ArrayList<>();
+  private static final int MAX_FAULTS = Long.SIZE;
 
+  private final List<Fault> faults = new ArrayList<>();
+  private long warningMask = 0;
+  private long errorMask = 0;
+  private long activeMask = 0;
+  private long previousMask = 0;
+  private FaultRegistry.Node registryNode = null;
+
+  // Replaced by the device's path once it's added to the FaultRegistry, so that devices with the
+  // same name on different modules are logged and notified separately
   public String subsystemName;
 
   private DataLog log = DataLogManager.getLog();
-  private StringLogEntry stringLog = new StringLogEntry(log, subsystemName);
+  // Created on first use, after the checker has its final name
+  private StringLogEntry stringLog = null;
 
   public FaultChecker(String commponentName) {
     this.subsystemName = commponentName;
     DataLogManager.start();
   }
 
+  /** Reads every fault's latest state, then logs or notifies for each one that changed. */
   public void updateFaults() {
-    for (Fault f : warningFaults) {
+    long active = 0;
+    for (int i = 0; i < faults.size(); i++) {
+      Fault f = faults.get(i);
       f.updateFault();
-      if (f.hasFault != f.hadFault) {
-        f.logFault(subsystemName, stringLog);
+      if (f.hasFault) {
+        active |= 1L << i;
       }
     }
-    for (Fault f : errorFaults) {
-      f.updateFault();
-      if (f.hasFault != f.hadFault) {
+    previousMask = activeMask;
+    activeMask = active;
+
+    long changed = activeMask ^ previousMask;
+    if (changed != 0 && registryNode != null) {
+      registryNode.markStale();
+    }
+    while (changed != 0) {
+      int bit = Long.numberOfTrailingZeros(changed);
+      changed &= changed - 1;
+      Fault f = faults.get(bit);
+      if ((errorMask & (1L << bit)) != 0) {
         f.sendNotification(subsystemName);
+      } else {
+        f.logFault(subsystemName, getStringLog());
       }
     }
   }
 
   public List<Fault> getFaults() {
-    return Stream.concat(getWarningFaults().stream(), getErrorFaults().stream()).toList();
+    return collect(activeMask);
   }
 
   public List<Fault> getWarningFaults() {
-    List<Fault> errorFaults = new ArrayList<>();
-    for (Fault f : warningFaults) {
-      if (f.hasFault) {
-        errorFaults.add(f);
-      }
-    }
-    return errorFaults;
+    return collect(activeMask & warningMask);
   }
 
   public List<Fault> getErrorFaults() {
-    List<Fault> errorFaults = new ArrayList<>();
-    for (Fault f : errorFaults) {
-      if (f.hasFault) {
-        errorFaults.add(f);
-      }
+    return collect(activeMask & errorMask);
+  }
+
+  /** Returns the active faults as a bitmask, with bit i set if the i-th fault added is active. */
+  public long getActiveMask() {
+    return activeMask;
+  }
+
+  public long getWarningMask() {
+    return warningMask;
+  }
+
+  public long getErrorMask() {
+    return errorMask;
+  }
+
+  /** Returns the faults that became active or cleared in the last update, as a bitmask. */
+  public long getChangedMask() {
+    return activeMask ^ previousMask;
+  }
+
+  /** Returns the fault for a bit of the masks. */
+  public Fault getFault(int bit) {
+    return faults.get(bit);
+  }
+
+  /**
+   * Sets the node in {@link FaultRegistry} to mark stale when a fault changes, and names the
+   * checker after the node's path.
+   */
+  void setRegistryNode(FaultRegistry.Node node) {
+    registryNode = node;
+    subsystemName = node.getPath();
+    // Re-encode the error notifications under the new name
+    long errors = errorMask;
+    while (errors != 0) {
+      faults.get(Long.numberOfTrailingZeros(errors)).precompileNotifications(subsystemName);
+      errors &= errors - 1;
     }
-    return errorFaults;
   }
 
+  private StringLogEntry getStringLog() {
+    if (stringLog == null) {
+      stringLog = new StringLogEntry(log, subsystemName);
+    }
+    return stringLog;
+  }
+
+  /** Adds a warning or error fault. Faults at other levels are ignored. */
   public void addFault(Fault fault) {
-    if (warningFaults != null && fault.level == NotificationLevel.WARNING) {
-      this.warningFaults.add(fault);
+    if (fault.level != NotificationLevel.WARNING && fault.level != NotificationLevel.ERROR) {
+      return;
+    }
+    if (faults.size() == MAX_FAULTS) {
+      throw new IllegalStateException(
+          "A fault checker holds at most " + MAX_FAULTS + " faults, " + subsystemName + " is full");
     }
-    if (errorFaults != null && fault.level == NotificationLevel.ERROR) {
-      this.errorFaults.add(fault);
+    long bit = 1L << faults.size();
+    if (fault.level == NotificationLevel.WARNING) {
+      warningMask |= bit;
+    } else {
+      errorMask |= bit;
+      // Errors notify the driver, so encode their notifications now rather than on the transition
+      fault.precompileNotifications(subsystemName);
+    }
+    faults.add(fault);
+    FaultPoller.getInstance().register(fault);
+  }
+
+  /** Returns the signals of every fault, so their device can keep them broadcasting. */
+  public BaseStatusSignal[] getSignals() {
+    BaseStatusSignal[] signals = new BaseStatusSignal[faults.size()];
+    for (int i = 0; i < signals.length; i++) {
+      signals[i] = faults.get(i).getSignal();
     }
+    return signals;
   }
 
   public boolean hasFault() {
-    return getWarningFaults().size() != 0;
+    return (activeMask & warningMask) != 0;
   }
 
   public boolean hasErrorFault() {
-    return getErrorFaults().size() != 0;
+    return (activeMask & errorMask) != 0;
   }
 
   /**
    * @return true if no warnings or errors
    */
   public boolean isHealthy() {
-    return (!hasFault()) && !(hasErrorFault());
+    return activeMask == 0;
   }
 
   /**
@@ -98,4 +180,13 @@ public class FaultChecker {
   public boolean isAlive() {
     return !hasErrorFault();
   }
+
+  private List<Fault> collect(long mask) {
+    List<Fault> result = new ArrayList<>(Long.bitCount(mask));
+    while (mask != 0) {
+      result.add(faults.get(Long.numberOfTrailingZeros(mask)));
+      mask &= mask - 1;
+    }
+    return result;
+  }
 }
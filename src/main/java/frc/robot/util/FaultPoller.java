@@ -0,0 +1,65 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Refreshes every registered fault signal in one batched call on a background thread, a few times
+ * a second. Faults only need to reach the driver within a fraction of a second, so this keeps a
+ * CAN read per fault out of the main loop, which then only reads the polled values.
+ */
+public class FaultPoller {
+  public static final double FREQUENCY_HZ = 4.0;
+
+  // Replaced as a whole on registration so the poller thread never sees a partial update
+  private record Registry(Fault[] faults, BaseStatusSignal[] signals) {}
+
+  private volatile Registry registry = new Registry(new Fault[0], new BaseStatusSignal[0]);
+  private volatile double lastPollMs = 0.0;
+  private final Notifier notifier = new Notifier(this::poll);
+
+  private static FaultPoller instance = null;
+
+  public static synchronized FaultPoller getInstance() {
+    if (instance == null) {
+      instance = new FaultPoller();
+    }
+    return instance;
+  }
+
+  private FaultPoller() {
+    notifier.setName("FaultPoller");
+    notifier.startPeriodic(1.0 / FREQUENCY_HZ);
+  }
+
+  /** Adds a fault to be polled. */
+  public synchronized void register(Fault fault) {
+    Registry current = registry;
+    int count = current.faults().length;
+    Fault[] faults = new Fault[count + 1];
+    BaseStatusSignal[] signals = new BaseStatusSignal[count + 1];
+    System.arraycopy(current.faults(), 0, faults, 0, count);
+    System.arraycopy(current.signals(), 0, signals, 0, count);
+    faults[count] = fault;
+    signals[count] = fault.getSignal();
+    registry = new Registry(faults, signals);
+  }
+
+  /** Returns how long the last poll took in milliseconds. */
+  public double getLastPollMs() {
+    return lastPollMs;
+  }
+
+  private void poll() {
+    Registry current = registry;
+    if (current.signals().length == 0) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    BaseStatusSignal.refreshAll(current.signals());
+    for (Fault fault : current.faults()) {
+      fault.poll();
+    }
+    lastPollMs = (System.nanoTime() - startNanos) / 1e6;
+  }
+}
@@ -0,0 +1,187 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.IntegerArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects every device's {@link FaultChecker} into one tree, robot → subsystem → module → device,
+ * with each device's faults as the bits of its checker. Every node caches how many warnings and
+ * errors are active beneath it. A checker whose faults change marks its device and the device's
+ * ancestors stale, and {@link #update()} only recomputes stale nodes, so a loop with no fault
+ * changes only checks the root.
+ *
+ * <p>The health of every node is published to the dashboard as one integer array, in the order of
+ * the node paths published alongside it, and only when a node's health changes.
+ */
+public class FaultRegistry {
+  public static final int HEALTHY = 0;
+  public static final int WARNING = 1;
+  public static final int ERROR = 2;
+
+  /** A subsystem, module, or device in the fault tree. */
+  public static class Node {
+    private final FaultRegistry registry;
+    private final String name;
+    private final String path;
+    private final Node parent;
+    private final FaultChecker checker;
+    private final int index;
+    private final List<Node> children = new ArrayList<>();
+    private int warningCount = 0;
+    private int errorCount = 0;
+    // A stale node's ancestors are always stale too
+    private boolean stale = false;
+
+    private Node(FaultRegistry registry, String name, Node parent, FaultChecker checker) {
+      this.registry = registry;
+      this.name = name;
+      this.path = parent == null ? name : parent.path + "/" + name;
+      this.parent = parent;
+      this.checker = checker;
+      this.index = registry.nodes.size();
+      registry.nodes.add(this);
+      registry.structureChanged = true;
+      if (parent != null) {
+        parent.children.add(this);
+      }
+      markStale();
+    }
+
+    /** Returns the child with the given name, adding it if it doesn't exist yet. */
+    public Node child(String name) {
+      for (Node child : children) {
+        if (child.name.equals(name)) {
+          return child;
+        }
+      }
+      return new Node(registry, name, this, null);
+    }
+
+    /** Adds a device under this node, named after its checker, which takes the device's path. */
+    public Node addDevice(FaultChecker checker) {
+      Node device = new Node(registry, checker.subsystemName, this, checker);
+      checker.setRegistryNode(device);
+      return device;
+    }
+
+    /** Marks this node and its ancestors to be recomputed on the next update. */
+    void markStale() {
+      for (Node node = this; node != null && !node.stale; node = node.parent) {
+        node.stale = true;
+      }
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public List<Node> getChildren() {
+      return Collections.unmodifiableList(children);
+    }
+
+    /** Returns the device's checker, or null if this node isn't a device. */
+    public FaultChecker getChecker() {
+      return checker;
+    }
+
+    public int getWarningCount() {
+      return warningCount;
+    }
+
+    public int getErrorCount() {
+      return errorCount;
+    }
+
+    /**
+     * @return {@link FaultRegistry#ERROR} if any error is active beneath this node, otherwise
+     *     {@link FaultRegistry#WARNING} if any warning is, otherwise {@link FaultRegistry#HEALTHY}
+     */
+    public int getHealth() {
+      if (errorCount > 0) {
+        return ERROR;
+      }
+      return warningCount > 0 ? WARNING : HEALTHY;
+    }
+  }
+
+  private final List<Node> nodes = new ArrayList<>();
+  private final Node root;
+  private long[] health = new long[0];
+  private boolean structureChanged = false;
+  private boolean healthChanged = false;
+
+  private final IntegerArrayPublisher healthPublisher =
+      NetworkTableInstance.getDefault().getIntegerArrayTopic("/Faults/Health").publish();
+  private final StringArrayPublisher nodesPublisher =
+      NetworkTableInstance.getDefault().getStringArrayTopic("/Faults/Nodes").publish();
+
+  private static FaultRegistry instance = null;
+
+  public static synchronized FaultRegistry getInstance() {
+    if (instance == null) {
+      instance = new FaultRegistry();
+    }
+    return instance;
+  }
+
+  private FaultRegistry() {
+    root = new Node(this, "Robot", null, null);
+  }
+
+  /** Returns the robot node, which subsystems add themselves under. */
+  public Node getRoot() {
+    return root;
+  }
+
+  /** Recomputes the nodes whose faults changed and publishes their health if it changed. */
+  public void update() {
+    if (structureChanged) {
+      structureChanged = false;
+      health = new long[nodes.size()];
+      String[] paths = new String[nodes.size()];
+      for (int i = 0; i < paths.length; i++) {
+        paths[i] = nodes.get(i).path;
+        health[i] = nodes.get(i).getHealth();
+      }
+      nodesPublisher.set(paths);
+      healthChanged = true;
+    }
+    if (root.stale) {
+      refresh(root);
+    }
+    if (healthChanged) {
+      healthChanged = false;
+      healthPublisher.set(health);
+    }
+  }
+
+  private void refresh(Node node) {
+    int warnings = 0;
+    int errors = 0;
+    if (node.checker != null) {
+      long active = node.checker.getActiveMask();
+      warnings = Long.bitCount(active & node.checker.getWarningMask());
+      errors = Long.bitCount(active & node.checker.getErrorMask());
+    }
+    for (Node child : node.children) {
+      if (child.stale) {
+        refresh(child);
+      }
+      warnings += child.warningCount;
+      errors += child.errorCount;
+    }
+    node.warningCount = warnings;
+    node.errorCount = errors;
+    node.stale = false;
+
+    int nodeHealth = node.getHealth();
+    if (health[node.index] != nodeHealth) {
+      health[node.index] = nodeHealth;
+      healthChanged = true;
+    }
+  }
+}
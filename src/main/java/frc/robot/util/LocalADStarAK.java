@@ -8,6 +8,8 @@ import com.pathplanner.lib.pathfinding.LocalADStar;
 import com.pathplanner.lib.pathfinding.Pathfinder;
 import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -19,7 +21,23 @@ import org.littletonrobotics.junction.inputs.LoggableInputs;
 // https://gist.github.com/mjansen4857/a8024b55eb427184dbd10ae8923bd57d
 
 public class LocalADStarAK implements Pathfinder {
+  // Obstacle changes farther than this from the current path don't trigger a replan
+  private static final double REPLAN_MARGIN_METERS = 1.0;
+
   private final ADStarIO io = new ADStarIO();
+  private final ObstacleDiff obstacleDiff;
+  private long obstacleUpdatesForwarded = 0;
+  private long obstacleUpdatesSkipped = 0;
+
+  public LocalADStarAK() {
+    ObstacleDiff diff = null;
+    try {
+      diff = new ObstacleDiff(NavGrid.fromDeploy());
+    } catch (IOException e) {
+      DriverStation.reportWarning("Obstacle updates won't be diffed: " + e.getMessage(), false);
+    }
+    obstacleDiff = diff;
+  }
 
   /**
    * Get if a new path has been calculated since the last time a path was retrieved
@@ -86,7 +104,9 @@ public class LocalADStarAK implements Pathfinder {
   }
 
   /**
-   * Set the dynamic obstacles that should be avoided while pathfinding.
+   * Set the dynamic obstacles that should be avoided while pathfinding. The obstacles are only
+   * passed on to LocalADStar, which replans, when they cover different grid nodes near the current
+   * path than the last ones passed on.
    *
    * @param obs A List of Translation2d pairs representing obstacles. Each Translation2d represents
    *     opposite corners of a bounding box.
@@ -96,44 +116,55 @@ public class LocalADStarAK implements Pathfinder {
   @Override
   public void setDynamicObstacles(
       List<Pair<Translation2d, Translation2d>> obs, Translation2d currentRobotPos) {
-    if (!Logger.hasReplaySource()) {
+    if (Logger.hasReplaySource()) {
+      return;
+    }
+    if (obstacleDiff == null) {
       io.adStar.setDynamicObstacles(obs, currentRobotPos);
+      return;
     }
+
+    int cellsChanged = obstacleDiff.update(obs);
+    Logger.recordOutput("LocalADStarAK/Obstacles/CellsChanged", cellsChanged);
+    if (cellsChanged > 0
+        && (io.pathLog.getPositions().isEmpty()
+            || obstacleDiff.changedNear(io.pathLog.getPositions(), REPLAN_MARGIN_METERS))) {
+      // LocalADStar doesn't report its search effort, so log the size of the region it repairs
+      Logger.recordOutput(
+          "LocalADStarAK/Obstacles/RepairRegionSize", obstacleDiff.getRepairRegionSize());
+      obstacleDiff.accept();
+      io.adStar.setDynamicObstacles(obs, currentRobotPos);
+      obstacleUpdatesForwarded++;
+    } else {
+      obstacleUpdatesSkipped++;
+    }
+    Logger.recordOutput("LocalADStarAK/Obstacles/UpdatesForwarded", obstacleUpdatesForwarded);
+    Logger.recordOutput("LocalADStarAK/Obstacles/UpdatesSkipped", obstacleUpdatesSkipped);
   }
 
   private static class ADStarIO implements LoggableInputs {
     public LocalADStar adStar = new LocalADStar();
     public boolean isNewPathAvailable = false;
     public List<PathPoint> currentPathPoints = Collections.emptyList();
+    public final PathLog pathLog = new PathLog();
 
     @Override
     public void toLog(LogTable table) {
       table.put("IsNewPathAvailable", isNewPathAvailable);
-
-      double[] pointsLogged = new double[currentPathPoints.size() * 2];
-      int idx = 0;
-      for (PathPoint point : currentPathPoints) {
-        pointsLogged[idx] = point.position.getX();
-        pointsLogged[idx + 1] = point.position.getY();
-        idx += 2;
-      }
-
-      table.put("CurrentPathPoints", pointsLogged);
+      pathLog.toLog(table);
     }
 
     @Override
     public void fromLog(LogTable table) {
       isNewPathAvailable = table.get("IsNewPathAvailable", false);
 
-      double[] pointsLogged = table.get("CurrentPathPoints", new double[0]);
-
-      List<PathPoint> pathPoints = new ArrayList<>();
-      for (int i = 0; i < pointsLogged.length; i += 2) {
-        pathPoints.add(
-            new PathPoint(new Translation2d(pointsLogged[i], pointsLogged[i + 1]), null));
+      if (pathLog.fromLog(table)) {
+        List<PathPoint> pathPoints = new ArrayList<>();
+        for (Translation2d position : pathLog.getPositions()) {
+          pathPoints.add(new PathPoint(position, null));
+        }
+        currentPathPoints = pathPoints;
       }
-
-      currentPathPoints = pathPoints;
     }
 
     public void updateIsNewPathAvailable() {
@@ -148,6 +179,12 @@ public class LocalADStarAK implements Pathfinder {
       } else {
         currentPathPoints = Collections.emptyList();
       }
+
+      List<Translation2d> positions = new ArrayList<>(currentPathPoints.size());
+      for (PathPoint point : currentPathPoints) {
+        positions.add(point.position);
+      }
+      pathLog.set(positions);
     }
   }
 }
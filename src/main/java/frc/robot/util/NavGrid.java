@@ -0,0 +1,281 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * PathPlanner's navigation grid packed into primitive arrays. Occupancy is a bitset with one bit
+ * per node, and a distance field stores each node's clearance, the distance in meters to the
+ * nearest blocked node or the edge of the field. Cells are indexed row-major, {@code row * columns
+ * + column}, with row 0 along y = 0.
+ *
+ * <p>Dynamic obstacles are kept in a second bitset on top of the static grid, and the distance
+ * field is rebuilt whenever they change.
+ */
+public class NavGrid {
+  private static final double SQRT_2 = Math.sqrt(2.0);
+
+  private final double nodeSize;
+  private final int columns;
+  private final int rows;
+  private final long[] staticBlocked;
+  private final long[] blocked;
+  private final float[] clearance;
+
+  /**
+   * @param grid blocked nodes indexed {@code [row][column]}, as in navgrid.json
+   * @param nodeSize the side length of each node in meters
+   */
+  public NavGrid(boolean[][] grid, double nodeSize) {
+    this.nodeSize = nodeSize;
+    rows = grid.length;
+    columns = rows == 0 ? 0 : grid[0].length;
+    staticBlocked = new long[(rows * columns + 63) >>> 6];
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        if (grid[row][column]) {
+          set(staticBlocked, row * columns + column);
+        }
+      }
+    }
+    blocked = staticBlocked.clone();
+    clearance = new float[rows * columns];
+    updateClearance();
+  }
+
+  /** Loads the grid from deploy/pathplanner/navgrid.json. */
+  public static NavGrid fromDeploy() throws IOException {
+    return fromFile(new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json"));
+  }
+
+  /** Loads a grid in PathPlanner's navgrid.json format. */
+  public static NavGrid fromFile(File file) throws IOException {
+    JsonNode json = new ObjectMapper().readTree(file);
+    JsonNode gridJson = json.get("grid");
+    boolean[][] grid = new boolean[gridJson.size()][];
+    for (int row = 0; row < grid.length; row++) {
+      JsonNode rowJson = gridJson.get(row);
+      grid[row] = new boolean[rowJson.size()];
+      for (int column = 0; column < grid[row].length; column++) {
+        grid[row][column] = rowJson.get(column).asBoolean();
+      }
+    }
+    return new NavGrid(grid, json.get("nodeSizeMeters").asDouble());
+  }
+
+  public double getNodeSize() {
+    return nodeSize;
+  }
+
+  public int getColumns() {
+    return columns;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCellCount() {
+    return rows * columns;
+  }
+
+  /** Returns whether a node is blocked by the static grid or a dynamic obstacle. */
+  public boolean isBlocked(int cell) {
+    return get(blocked, cell);
+  }
+
+  /** Returns whether a node is blocked, treating everything off the grid as blocked. */
+  public boolean isBlocked(int column, int row) {
+    if (column < 0 || column >= columns || row < 0 || row >= rows) {
+      return true;
+    }
+    return get(blocked, cellOf(column, row));
+  }
+
+  /** Returns the distance in meters from a node to the nearest blocked node or field edge. */
+  public float getClearance(int cell) {
+    return clearance[cell];
+  }
+
+  public int cellOf(int column, int row) {
+    return row * columns + column;
+  }
+
+  /** Returns the node containing a field position, clamped onto the grid. */
+  public int cellOf(Translation2d position) {
+    return cellOf(columnOf(position.getX()), rowOf(position.getY()));
+  }
+
+  public int columnOf(double x) {
+    return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / nodeSize)));
+  }
+
+  public int rowOf(double y) {
+    return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / nodeSize)));
+  }
+
+  public int columnOfCell(int cell) {
+    return cell % columns;
+  }
+
+  public int rowOfCell(int cell) {
+    return cell / columns;
+  }
+
+  /** Returns the field x of the center of a node. */
+  public double centerX(int cell) {
+    return (columnOfCell(cell) + 0.5) * nodeSize;
+  }
+
+  /** Returns the field y of the center of a node. */
+  public double centerY(int cell) {
+    return (rowOfCell(cell) + 0.5) * nodeSize;
+  }
+
+  /** Returns the nearest unblocked node to the given one, or -1 if every node is blocked. */
+  public int nearestFree(int cell) {
+    if (!isBlocked(cell)) {
+      return cell;
+    }
+    int centerColumn = columnOfCell(cell);
+    int centerRow = rowOfCell(cell);
+    for (int ring = 1; ring < Math.max(columns, rows); ring++) {
+      int best = -1;
+      int bestDistance = Integer.MAX_VALUE;
+      for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+        for (int column = centerColumn - ring; column <= centerColumn + ring; column++) {
+          boolean onRing =
+              Math.abs(row - centerRow) == ring || Math.abs(column - centerColumn) == ring;
+          if (!onRing || isBlocked(column, row)) {
+            continue;
+          }
+          int dx = column - centerColumn;
+          int dy = row - centerRow;
+          if (dx * dx + dy * dy < bestDistance) {
+            bestDistance = dx * dx + dy * dy;
+            best = cellOf(column, row);
+          }
+        }
+      }
+      if (best >= 0) {
+        return best;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Replaces the dynamic obstacles and rebuilds the distance field if any node changed.
+   *
+   * @param obstacles pairs of opposite corners of each obstacle's bounding box
+   * @return whether any node changed
+   */
+  public boolean setDynamicObstacles(List<Pair<Translation2d, Translation2d>> obstacles) {
+    long[] next = staticBlocked.clone();
+    rasterize(obstacles, next);
+    boolean changed = false;
+    for (int i = 0; i < blocked.length; i++) {
+      changed |= blocked[i] != next[i];
+      blocked[i] = next[i];
+    }
+    if (changed) {
+      updateClearance();
+    }
+    return changed;
+  }
+
+  /** Returns the number of longs in a bitset with one bit per node. */
+  public int getBitsetLength() {
+    return staticBlocked.length;
+  }
+
+  /**
+   * Sets the bit of every node covered by an obstacle, leaving the other bits as they are.
+   *
+   * @param obstacles pairs of opposite corners of each obstacle's bounding box
+   * @param bits a bitset of {@link #getBitsetLength()} longs
+   */
+  public void rasterize(List<Pair<Translation2d, Translation2d>> obstacles, long[] bits) {
+    for (Pair<Translation2d, Translation2d> obstacle : obstacles) {
+      Translation2d a = obstacle.getFirst();
+      Translation2d b = obstacle.getSecond();
+      int firstColumn = columnOf(Math.min(a.getX(), b.getX()));
+      int lastColumn = columnOf(Math.max(a.getX(), b.getX()));
+      int firstRow = rowOf(Math.min(a.getY(), b.getY()));
+      int lastRow = rowOf(Math.max(a.getY(), b.getY()));
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+          set(bits, cellOf(column, row));
+        }
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the distance field with a two-pass chamfer transform using octile steps, which is
+   * within 8% of the true Euclidean distance.
+   */
+  private void updateClearance() {
+    float diagonal = (float) (nodeSize * SQRT_2);
+    float straight = (float) nodeSize;
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        int cell = cellOf(column, row);
+        if (get(blocked, cell)) {
+          clearance[cell] = 0.0f;
+        } else {
+          // Off the grid counts as blocked
+          int edgeColumns = Math.min(column, columns - 1 - column);
+          int edgeRows = Math.min(row, rows - 1 - row);
+          clearance[cell] = (Math.min(edgeColumns, edgeRows) + 1) * straight;
+        }
+      }
+    }
+    // Forward pass from the neighbors before each node in row-major order
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        int cell = cellOf(column, row);
+        float distance = clearance[cell];
+        if (column > 0) distance = Math.min(distance, clearance[cell - 1] + straight);
+        if (row > 0) {
+          distance = Math.min(distance, clearance[cell - columns] + straight);
+          if (column > 0) distance = Math.min(distance, clearance[cell - columns - 1] + diagonal);
+          if (column < columns - 1) {
+            distance = Math.min(distance, clearance[cell - columns + 1] + diagonal);
+          }
+        }
+        clearance[cell] = distance;
+      }
+    }
+    // Backward pass from the neighbors after each node
+    for (int row = rows - 1; row >= 0; row--) {
+      for (int column = columns - 1; column >= 0; column--) {
+        int cell = cellOf(column, row);
+        float distance = clearance[cell];
+        if (column < columns - 1) distance = Math.min(distance, clearance[cell + 1] + straight);
+        if (row < rows - 1) {
+          distance = Math.min(distance, clearance[cell + columns] + straight);
+          if (column < columns - 1) {
+            distance = Math.min(distance, clearance[cell + columns + 1] + diagonal);
+          }
+          if (column > 0) distance = Math.min(distance, clearance[cell + columns - 1] + diagonal);
+        }
+        clearance[cell] = distance;
+      }
+    }
+  }
+
+  private static boolean get(long[] bits, int index) {
+    return (bits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private static void set(long[] bits, int index) {
+    bits[index >>> 6] |= 1L << index;
+  }
+}
@@ -0,0 +1,140 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.util.Elastic.Notification;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Sends notifications to Elastic from a background thread, so serializing and publishing them
+ * stays out of the robot loop. A notification submitted while an identical one (same title and
+ * description) is still waiting replaces it instead of being sent twice. Each source may only send
+ * a few notifications in a burst and then one every couple of seconds; the rest wait their turn,
+ * so a flapping fault can't flood the dashboard and its latest state is still shown once it calms
+ * down. Precompiled {@link NotificationTemplate}s are published as they are, without serializing.
+ */
+public class NotificationDispatcher {
+  public static final double FREQUENCY_HZ = 10.0;
+  private static final double BURST_SIZE = 3.0;
+  private static final double REFILL_PER_SECOND = 0.5;
+  // Past this, new notifications are dropped until the queue drains
+  private static final int MAX_PENDING = 32;
+
+  private record Key(String title, String description) {}
+
+  private record Pending(String source, NotificationTemplate template) {}
+
+  /** Limits how often one source sends, refilling a token every 1 / REFILL_PER_SECOND seconds. */
+  private static class TokenBucket {
+    private double tokens = BURST_SIZE;
+    private long lastRefillNanos;
+
+    private TokenBucket(long nowNanos) {
+      lastRefillNanos = nowNanos;
+    }
+
+    private boolean tryTake(long nowNanos) {
+      tokens =
+          Math.min(BURST_SIZE, tokens + (nowNanos - lastRefillNanos) / 1e9 * REFILL_PER_SECOND);
+      lastRefillNanos = nowNanos;
+      if (tokens < 1.0) {
+        return false;
+      }
+      tokens -= 1.0;
+      return true;
+    }
+  }
+
+  // Guarded by this; ordered so the most recently submitted notification is sent last
+  private final LinkedHashMap<Key, Pending> pending = new LinkedHashMap<>();
+  private final Map<String, TokenBucket> buckets = new HashMap<>();
+  private long sent = 0;
+  private long coalesced = 0;
+  private long dropped = 0;
+
+  private final List<NotificationTemplate> batch = new ArrayList<>();
+  private final Notifier notifier = new Notifier(this::dispatch);
+
+  private static NotificationDispatcher instance = null;
+
+  public static synchronized NotificationDispatcher getInstance() {
+    if (instance == null) {
+      instance = new NotificationDispatcher();
+    }
+    return instance;
+  }
+
+  private NotificationDispatcher() {
+    notifier.setName("NotificationDispatcher");
+    notifier.startPeriodic(1.0 / FREQUENCY_HZ);
+  }
+
+  /**
+   * Queues a notification to be sent to Elastic.
+   *
+   * @param source what the notification is about, which the rate limit is applied to
+   * @param notification the notification to send
+   */
+  public void submit(String source, Notification notification) {
+    submit(source, new NotificationTemplate(notification));
+  }
+
+  /**
+   * Queues a notification to be sent to Elastic, using its serialized JSON if it was precompiled.
+   *
+   * @param source what the notification is about, which the rate limit is applied to
+   * @param template the notification to send
+   */
+  public synchronized void submit(String source, NotificationTemplate template) {
+    Notification notification = template.getNotification();
+    Key key = new Key(notification.getTitle(), notification.getDescription());
+    if (pending.remove(key) != null) {
+      coalesced++;
+    } else if (pending.size() >= MAX_PENDING) {
+      dropped++;
+      return;
+    }
+    pending.put(key, new Pending(source, template));
+  }
+
+  /** Logs how many notifications were sent, merged into a waiting one, or dropped. */
+  public synchronized void logMetrics() {
+    Logger.recordOutput("Notifications/Sent", sent);
+    Logger.recordOutput("Notifications/Coalesced", coalesced);
+    Logger.recordOutput("Notifications/Dropped", dropped);
+    Logger.recordOutput("Notifications/Pending", pending.size());
+  }
+
+  private void dispatch() {
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      long nowNanos = System.nanoTime();
+      Iterator<Pending> iterator = pending.values().iterator();
+      while (iterator.hasNext()) {
+        Pending next = iterator.next();
+        TokenBucket bucket =
+            buckets.computeIfAbsent(next.source(), source -> new TokenBucket(nowNanos));
+        if (bucket.tryTake(nowNanos)) {
+          iterator.remove();
+          batch.add(next.template());
+        }
+      }
+      sent += batch.size();
+    }
+    // Serialize and publish without holding the lock, so submit never waits on Jackson
+    for (NotificationTemplate template : batch) {
+      String json = template.getJson();
+      if (json != null) {
+        Elastic.sendNotificationJson(json);
+      }
+    }
+    batch.clear();
+  }
+}
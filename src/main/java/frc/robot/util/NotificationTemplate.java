@@ -0,0 +1,41 @@
+package frc.robot.util;
+
+import frc.robot.util.Elastic.Notification;
+
+/**
+ * A notification together with its serialized JSON, so it can be sent any number of times while
+ * only being serialized once. A precompiled template is serialized when it's created, typically
+ * at startup, so sending it never runs Jackson. The notification must not be modified after the
+ * template is created.
+ */
+public final class NotificationTemplate {
+  private final Notification notification;
+  // Serialized on first use unless precompiled
+  private String json = null;
+
+  /** Creates a template that is serialized the first time it's sent. */
+  public NotificationTemplate(Notification notification) {
+    this.notification = notification;
+  }
+
+  /** Creates a template that is serialized now. */
+  public static NotificationTemplate precompiled(Notification notification) {
+    NotificationTemplate template = new NotificationTemplate(notification);
+    template.getJson();
+    return template;
+  }
+
+  public Notification getNotification() {
+    return notification;
+  }
+
+  /**
+   * @return the notification serialized for Elastic, or null if it couldn't be serialized
+   */
+  public String getJson() {
+    if (json == null) {
+      json = Elastic.toJson(notification);
+    }
+    return json;
+  }
+}
@@ -0,0 +1,126 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tracks which nav grid nodes dynamic obstacles cover, so a pathfinder can tell whether a new
+ * obstacle list actually changes anything before replanning. Each update is compared against the
+ * last list the pathfinder accepted with {@link #accept()}, not the last one seen, so small moves
+ * that were skipped still add up until they matter.
+ */
+public class ObstacleDiff {
+  private final NavGrid grid;
+  private final long[] accepted;
+  private final long[] current;
+  private final long[] changed;
+  private int cellsChanged = 0;
+
+  public ObstacleDiff(NavGrid grid) {
+    this.grid = grid;
+    accepted = new long[grid.getBitsetLength()];
+    current = new long[accepted.length];
+    changed = new long[accepted.length];
+  }
+
+  /**
+   * Rasterizes a new obstacle list and compares it to the accepted one.
+   *
+   * @param obstacles pairs of opposite corners of each obstacle's bounding box
+   * @return the number of nodes that were covered and aren't anymore, or the other way around
+   */
+  public int update(List<Pair<Translation2d, Translation2d>> obstacles) {
+    Arrays.fill(current, 0L);
+    grid.rasterize(obstacles, current);
+    cellsChanged = 0;
+    for (int i = 0; i < current.length; i++) {
+      changed[i] = current[i] ^ accepted[i];
+      cellsChanged += Long.bitCount(changed[i]);
+    }
+    return cellsChanged;
+  }
+
+  /** Returns the number of changed nodes found by the last update. */
+  public int getCellsChanged() {
+    return cellsChanged;
+  }
+
+  /** Returns the number of changed nodes plus their neighbors, the region a repair has to visit. */
+  public int getRepairRegionSize() {
+    int size = 0;
+    int cells = grid.getCellCount();
+    for (int cell = 0; cell < cells; cell++) {
+      if (isChanged(cell) || hasChangedNeighbor(cell)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns whether any changed node is within a margin of a path, meaning the path may now be
+   * blocked or a shorter one may have opened up next to it.
+   */
+  public boolean changedNear(List<Translation2d> path, double marginMeters) {
+    for (int word = 0; word < changed.length; word++) {
+      long bits = changed[word];
+      while (bits != 0) {
+        int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (distanceToPath(grid.centerX(cell), grid.centerY(cell), path) <= marginMeters) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Makes the last update the baseline that later updates are compared against. */
+  public void accept() {
+    System.arraycopy(current, 0, accepted, 0, current.length);
+    Arrays.fill(changed, 0L);
+    cellsChanged = 0;
+  }
+
+  private boolean isChanged(int cell) {
+    return (changed[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  private boolean hasChangedNeighbor(int cell) {
+    int column = grid.columnOfCell(cell);
+    int row = grid.rowOfCell(cell);
+    for (int dy = -1; dy <= 1; dy++) {
+      for (int dx = -1; dx <= 1; dx++) {
+        int neighborColumn = column + dx;
+        int neighborRow = row + dy;
+        if (neighborColumn >= 0
+            && neighborColumn < grid.getColumns()
+            && neighborRow >= 0
+            && neighborRow < grid.getRows()
+            && isChanged(grid.cellOf(neighborColumn, neighborRow))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static double distanceToPath(double x, double y, List<Translation2d> path) {
+    double best = Double.POSITIVE_INFINITY;
+    for (int i = 0; i + 1 < path.size(); i++) {
+      Translation2d a = path.get(i);
+      Translation2d b = path.get(i + 1);
+      double dx = b.getX() - a.getX();
+      double dy = b.getY() - a.getY();
+      double lengthSquared = dx * dx + dy * dy;
+      double t =
+          lengthSquared == 0.0 ? 0.0 : ((x - a.getX()) * dx + (y - a.getY()) * dy) / lengthSquared;
+      t = MathUtil.clamp(t, 0.0, 1.0);
+      best = Math.min(best, Math.hypot(a.getX() + t * dx - x, a.getY() + t * dy - y));
+    }
+    return best;
+  }
+}
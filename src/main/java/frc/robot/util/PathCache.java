@@ -0,0 +1,140 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.IdealStartingState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Pose2d;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Cache of straight-line approach paths, keyed by the region and heading the robot starts in, the
+ * target pose, and the constraints. A hit skips path generation entirely, and a miss generates the
+ * path and keeps it for the next request from the same region and heading. The cache can be
+ * warmed at startup with approach paths registered with {@link #warm}.
+ *
+ * <p>Paths are built in field coordinates with flipping disabled, so a cached path is valid for
+ * either alliance. Safe to use from any thread.
+ */
+public class PathCache {
+  // Starts within the same square of this size share a path, so this bounds the initial error
+  private static final double START_REGION_METERS = 0.25;
+  // Generated paths start along the robot's heading, so starts only share a path within this
+  private static final double START_HEADING_RESOLUTION_RADIANS = Math.toRadians(10.0);
+  private static final int START_HEADING_STEPS =
+      (int) Math.round(2.0 * Math.PI / START_HEADING_RESOLUTION_RADIANS);
+  // Targets are compared at this resolution, well below what the drive can hold
+  private static final double TARGET_RESOLUTION_METERS = 0.01;
+  private static final double TARGET_RESOLUTION_RADIANS = Math.toRadians(1.0);
+  private static final int MAX_ENTRIES = 512;
+
+  private record Key(
+      int startX,
+      int startY,
+      int startHeading,
+      int targetX,
+      int targetY,
+      int targetHeading,
+      PathConstraints constraints) {
+    // Paths always start from rest, so the start velocity isn't part of the key
+    static Key of(Pose2d start, Pose2d target, PathConstraints constraints) {
+      return new Key(
+          (int) Math.floor(start.getX() / START_REGION_METERS),
+          (int) Math.floor(start.getY() / START_REGION_METERS),
+          Math.floorMod(
+              Math.round(start.getRotation().getRadians() / START_HEADING_RESOLUTION_RADIANS),
+              START_HEADING_STEPS),
+          (int) Math.round(target.getX() / TARGET_RESOLUTION_METERS),
+          (int) Math.round(target.getY() / TARGET_RESOLUTION_METERS),
+          (int) Math.round(target.getRotation().getRadians() / TARGET_RESOLUTION_RADIANS),
+          constraints);
+    }
+  }
+
+  private final Map<Key, PathPlannerPath> paths = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private volatile double lastGenerationMs = 0.0;
+  private volatile double maxGenerationMs = 0.0;
+
+  private static PathCache instance = null;
+
+  public static synchronized PathCache getInstance() {
+    if (instance == null) {
+      instance = new PathCache();
+    }
+    return instance;
+  }
+
+  private PathCache() {}
+
+  /**
+   * Returns a path from the start to the target, from the cache if a path from the same start
+   * region and heading was already made.
+   */
+  public PathPlannerPath get(Pose2d start, Pose2d target, PathConstraints constraints) {
+    Key key = Key.of(start, target, constraints);
+    PathPlannerPath path = paths.get(key);
+    if (path != null) {
+      hits.incrementAndGet();
+      return path;
+    }
+
+    misses.incrementAndGet();
+    path = generate(start, target, constraints);
+    if (paths.size() < MAX_ENTRIES) {
+      paths.put(key, path);
+    }
+    return path;
+  }
+
+  /**
+   * Generates and caches a path ahead of time, so the first request from its region and heading
+   * hits.
+   */
+  public void warm(Pose2d start, Pose2d target, PathConstraints constraints) {
+    Key key = Key.of(start, target, constraints);
+    if (!paths.containsKey(key) && paths.size() < MAX_ENTRIES) {
+      paths.put(key, generate(start, target, constraints));
+    }
+  }
+
+  /** Logs the hit, miss, and generation time metrics. */
+  public void logMetrics() {
+    Logger.recordOutput("PathCache/Hits", hits.get());
+    Logger.recordOutput("PathCache/Misses", misses.get());
+    Logger.recordOutput("PathCache/Size", paths.size());
+    Logger.recordOutput("PathCache/LastGenerationMs", lastGenerationMs);
+    Logger.recordOutput("PathCache/MaxGenerationMs", maxGenerationMs);
+  }
+
+  /**
+   * Builds a straight-line path from the start to the target without touching the cache, for
+   * callers that need a path object of their own.
+   */
+  public static PathPlannerPath buildPath(
+      Pose2d start, Pose2d target, PathConstraints constraints) {
+    PathPlannerPath path =
+        new PathPlannerPath(
+            PathPlannerPath.waypointsFromPoses(start, target),
+            constraints,
+            new IdealStartingState(0, start.getRotation()),
+            new GoalEndState(0.0, target.getRotation()));
+    // Poses are already field-relative for the robot's alliance
+    path.preventFlipping = true;
+    return path;
+  }
+
+  private PathPlannerPath generate(Pose2d start, Pose2d target, PathConstraints constraints) {
+    long startNanos = System.nanoTime();
+    PathPlannerPath path = buildPath(start, target, constraints);
+
+    double generationMs = (System.nanoTime() - startNanos) / 1e6;
+    lastGenerationMs = generationMs;
+    maxGenerationMs = Math.max(maxGenerationMs, generationMs);
+    return path;
+  }
+}
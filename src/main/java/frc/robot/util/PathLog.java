@@ -0,0 +1,103 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+
+/**
+ * Compact log format for a pathfinder's current path. The path is logged as a version number that
+ * goes up whenever the points change, plus the points as floats, with the first point absolute
+ * and every later one as the offset from the point before it.
+ *
+ * <p>The encoded array is only rebuilt when the path changes, so logging an unchanged path every
+ * loop writes the same array and the log only grows when the path does. In replay the points are
+ * only decoded again when the logged version changes.
+ */
+public class PathLog {
+  private long version = 0;
+  private float[] encoded = new float[0];
+  private float[] scratch = new float[0];
+  private List<Translation2d> positions = Collections.emptyList();
+
+  /**
+   * Sets the current path from live data.
+   *
+   * @return whether the points differ from the last path set
+   */
+  public boolean set(List<Translation2d> points) {
+    int length = points.size() * 2;
+    if (scratch.length < length) {
+      scratch = new float[length];
+    }
+    // Deltas are taken from the decoded previous point so rounding never accumulates
+    double x = 0.0;
+    double y = 0.0;
+    for (int i = 0; i < points.size(); i++) {
+      Translation2d point = points.get(i);
+      scratch[2 * i] = (float) (point.getX() - x);
+      scratch[2 * i + 1] = (float) (point.getY() - y);
+      x += scratch[2 * i];
+      y += scratch[2 * i + 1];
+    }
+
+    if (length == encoded.length && matches(scratch, encoded)) {
+      return false;
+    }
+    encoded = new float[length];
+    System.arraycopy(scratch, 0, encoded, 0, length);
+    positions = points;
+    version++;
+    return true;
+  }
+
+  /** Returns the current path's points. */
+  public List<Translation2d> getPositions() {
+    return positions;
+  }
+
+  /** Returns the current path's version, which changes whenever its points do. */
+  public long getVersion() {
+    return version;
+  }
+
+  public void toLog(LogTable table) {
+    table.put("PathVersion", version);
+    table.put("PathPoints", encoded);
+  }
+
+  /**
+   * Reads the path from a log table, decoding the points only if the version changed.
+   *
+   * @return whether the path changed
+   */
+  public boolean fromLog(LogTable table) {
+    long loggedVersion = table.get("PathVersion", 0L);
+    if (loggedVersion == version) {
+      return false;
+    }
+    version = loggedVersion;
+    encoded = table.get("PathPoints", new float[0]);
+
+    List<Translation2d> decoded = new ArrayList<>(encoded.length / 2);
+    double x = 0.0;
+    double y = 0.0;
+    for (int i = 0; i + 1 < encoded.length; i += 2) {
+      x += encoded[i];
+      y += encoded[i + 1];
+      decoded.add(new Translation2d(x, y));
+    }
+    positions = decoded;
+    return true;
+  }
+
+  private static boolean matches(float[] candidate, float[] current) {
+    for (int i = 0; i < current.length; i++) {
+      if (Float.floatToIntBits(candidate[i]) != Float.floatToIntBits(current[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,262 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Grid-bucketed index of fixed target poses for nearest-target queries. Poses are packed into
+ * primitive arrays and grouped by grid cell, so a query only looks at the cells around the robot
+ * and never allocates.
+ *
+ * <p>Nearest queries rank targets by cost, which is the distance to the target plus {@code
+ * headingWeight} meters for every radian the robot would have to turn to match the target's
+ * heading. Since the cost is never less than the distance, the search stops once the next ring of
+ * cells is farther away than the worst result kept.
+ *
+ * <p>Queries are safe from any thread. {@link #nearestK} keeps its scratch space per thread, so it
+ * only allocates the first time a thread asks for more results than before.
+ */
+public class ScoringPoseIndex {
+  private final Pose2d[] poses;
+  private final double[] x;
+  private final double[] y;
+  private final double[] heading;
+  private final double headingWeight;
+
+  // Grid over the bounding box of the poses, with each cell's poses stored contiguously
+  private final double cellSize;
+  private final double minX;
+  private final double minY;
+  private final int columns;
+  private final int rows;
+  private final int[] cellStart;
+  private final int[] cellPoses;
+
+  private final ThreadLocal<double[]> scratchCosts = ThreadLocal.withInitial(() -> new double[0]);
+
+  /**
+   * @param poses the target poses, indexed in the order given
+   * @param cellSize the side length of each grid cell in meters
+   * @param headingWeight the cost in meters of each radian of heading error
+   */
+  public ScoringPoseIndex(Pose2d[] poses, double cellSize, double headingWeight) {
+    if (cellSize <= 0.0) {
+      throw new IllegalArgumentException("Cell size must be positive");
+    }
+    this.poses = poses.clone();
+    this.cellSize = cellSize;
+    this.headingWeight = headingWeight;
+    int count = poses.length;
+    x = new double[count];
+    y = new double[count];
+    heading = new double[count];
+
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      x[i] = poses[i].getX();
+      y[i] = poses[i].getY();
+      heading[i] = poses[i].getRotation().getRadians();
+      minX = Math.min(minX, x[i]);
+      minY = Math.min(minY, y[i]);
+      maxX = Math.max(maxX, x[i]);
+      maxY = Math.max(maxY, y[i]);
+    }
+    if (count == 0) {
+      minX = minY = maxX = maxY = 0.0;
+    }
+    this.minX = minX;
+    this.minY = minY;
+    columns = (int) ((maxX - minX) / cellSize) + 1;
+    rows = (int) ((maxY - minY) / cellSize) + 1;
+
+    // Counting sort of the poses into their cells
+    cellStart = new int[columns * rows + 1];
+    int[] poseCells = new int[count];
+    for (int i = 0; i < count; i++) {
+      poseCells[i] = cellOf(x[i], y[i]);
+      cellStart[poseCells[i] + 1]++;
+    }
+    for (int cell = 0; cell < columns * rows; cell++) {
+      cellStart[cell + 1] += cellStart[cell];
+    }
+    cellPoses = new int[count];
+    int[] fill = cellStart.clone();
+    for (int i = 0; i < count; i++) {
+      cellPoses[fill[poseCells[i]]++] = i;
+    }
+  }
+
+  /** Returns the number of poses in the index. */
+  public int size() {
+    return poses.length;
+  }
+
+  /** Returns the pose with the given index. */
+  public Pose2d getPose(int index) {
+    return poses[index];
+  }
+
+  /**
+   * Returns the index of the lowest cost pose from the robot's position and heading, or -1 if the
+   * index is empty.
+   */
+  public int nearest(double robotX, double robotY, double robotHeading) {
+    int bestIndex = -1;
+    double bestCost = Double.POSITIVE_INFINITY;
+    int centerColumn = clampColumn(robotX);
+    int centerRow = clampRow(robotY);
+    int maxRing = Math.max(columns, rows);
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (ringDistance(robotX, robotY, ring) > bestCost) break;
+      for (int cell = firstCell(centerColumn, centerRow, ring);
+          cell >= 0;
+          cell = nextCell(centerColumn, centerRow, ring, cell)) {
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+          int pose = cellPoses[i];
+          double cost = cost(pose, robotX, robotY, robotHeading);
+          if (cost < bestCost) {
+            bestCost = cost;
+            bestIndex = pose;
+          }
+        }
+      }
+    }
+    return bestIndex;
+  }
+
+  /**
+   * Finds the lowest cost poses from the robot's position and heading.
+   *
+   * @param out filled with pose indices from lowest to highest cost, its length is the k to find
+   * @return the number of indices written to {@code out}
+   */
+  public int nearestK(double robotX, double robotY, double robotHeading, int[] out) {
+    int k = out.length;
+    if (k == 0) {
+      return 0;
+    }
+    double[] costs = scratchCosts.get();
+    if (costs.length < k) {
+      costs = new double[k];
+      scratchCosts.set(costs);
+    }
+    int found = 0;
+    int centerColumn = clampColumn(robotX);
+    int centerRow = clampRow(robotY);
+    int maxRing = Math.max(columns, rows);
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (found == k && ringDistance(robotX, robotY, ring) > costs[k - 1]) break;
+      for (int cell = firstCell(centerColumn, centerRow, ring);
+          cell >= 0;
+          cell = nextCell(centerColumn, centerRow, ring, cell)) {
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+          int pose = cellPoses[i];
+          double cost = cost(pose, robotX, robotY, robotHeading);
+          if (found == k && cost >= costs[k - 1]) continue;
+
+          // Insertion into the sorted results, dropping the worst if full
+          int slot = found < k ? found++ : k - 1;
+          while (slot > 0 && costs[slot - 1] > cost) {
+            costs[slot] = costs[slot - 1];
+            out[slot] = out[slot - 1];
+            slot--;
+          }
+          costs[slot] = cost;
+          out[slot] = pose;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Finds every pose within a radius of the robot, ignoring heading.
+   *
+   * @param out filled with pose indices in no particular order, stopping once full
+   * @return the number of indices written to {@code out}
+   */
+  public int withinRadius(double robotX, double robotY, double radius, int[] out) {
+    int found = 0;
+    int firstColumn = clampColumn(robotX - radius);
+    int lastColumn = clampColumn(robotX + radius);
+    int firstRow = clampRow(robotY - radius);
+    int lastRow = clampRow(robotY + radius);
+    double radiusSquared = radius * radius;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int cell = row * columns + column;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+          int pose = cellPoses[i];
+          double dx = x[pose] - robotX;
+          double dy = y[pose] - robotY;
+          if (dx * dx + dy * dy <= radiusSquared) {
+            if (found == out.length) return found;
+            out[found++] = pose;
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  private double cost(int pose, double robotX, double robotY, double robotHeading) {
+    double distance = Math.hypot(x[pose] - robotX, y[pose] - robotY);
+    return distance + headingWeight * Math.abs(MathUtil.angleModulus(heading[pose] - robotHeading));
+  }
+
+  /** Returns a lower bound on the distance from the robot to any cell in the ring. */
+  private double ringDistance(double robotX, double robotY, int ring) {
+    if (ring == 0) return 0.0;
+    // Every cell is also at least as far as the grid itself for robots outside the grid
+    double outsideX = Math.max(0.0, Math.max(minX - robotX, robotX - (minX + columns * cellSize)));
+    double outsideY = Math.max(0.0, Math.max(minY - robotY, robotY - (minY + rows * cellSize)));
+    return Math.max((ring - 1) * cellSize, Math.max(outsideX, outsideY));
+  }
+
+  /** Returns the first valid cell on the square ring around the center, or -1 if none. */
+  private int firstCell(int centerColumn, int centerRow, int ring) {
+    return nextCellFrom(centerColumn, centerRow, ring, 0);
+  }
+
+  /** Returns the valid cell after the given one on the square ring, or -1 if none. */
+  private int nextCell(int centerColumn, int centerRow, int ring, int cell) {
+    int column = cell % columns - (centerColumn - ring);
+    int row = cell / columns - (centerRow - ring);
+    int side = 2 * ring + 1;
+    return nextCellFrom(centerColumn, centerRow, ring, row * side + column + 1);
+  }
+
+  /** Walks the ring's bounding square in row-major order from a position, skipping its inside. */
+  private int nextCellFrom(int centerColumn, int centerRow, int ring, int position) {
+    int side = 2 * ring + 1;
+    for (; position < side * side; position++) {
+      int row = position / side;
+      int column = position % side;
+      if (row != 0 && row != side - 1 && column != 0 && column != side - 1) {
+        position = row * side + side - 2; // Jump to the right edge of this row
+        continue;
+      }
+      int gridColumn = centerColumn - ring + column;
+      int gridRow = centerRow - ring + row;
+      if (gridColumn >= 0 && gridColumn < columns && gridRow >= 0 && gridRow < rows) {
+        return gridRow * columns + gridColumn;
+      }
+    }
+    return -1;
+  }
+
+  private int cellOf(double px, double py) {
+    return clampRow(py) * columns + clampColumn(px);
+  }
+
+  private int clampColumn(double px) {
+    return MathUtil.clamp((int) Math.floor((px - minX) / cellSize), 0, columns - 1);
+  }
+
+  private int clampRow(double py) {
+    return MathUtil.clamp((int) Math.floor((py - minY) / cellSize), 0, rows - 1);
+  }
+}
@@ -0,0 +1,70 @@
+package frc.robot.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.hal.HAL;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that Drive integrates odometry samples without allocating. The rest of a drive loop
+ * allocates the same amount however many samples arrive, so a loop with many samples is measured
+ * against a loop with few, and any difference is allocation inside the integration loop.
+ */
+public class DriveAllocationTest {
+  private static final double SAMPLE_PERIOD_SECONDS = 0.004;
+  private static final int FEW_SAMPLES = 5;
+  private static final int MANY_SAMPLES = 50;
+  private static final int WARMUP_CYCLES = 20000;
+  private static final int MEASURED_CYCLES = 1000;
+
+  private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @BeforeAll
+  public static void setup() {
+    HAL.initialize(500, 0);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void integratesSamplesWithoutAllocating(boolean gyroConnected) {
+    StubGyroIO gyro = new StubGyroIO(gyroConnected, FEW_SAMPLES, SAMPLE_PERIOD_SECONDS);
+    StubModuleIO[] modules = new StubModuleIO[4];
+    for (int i = 0; i < modules.length; i++) {
+      modules[i] = new StubModuleIO(FEW_SAMPLES, SAMPLE_PERIOD_SECONDS);
+    }
+    Drive drive = new Drive(gyro, modules[0], modules[1], modules[2], modules[3]);
+
+    long fewSamplesBytes = measure(drive, gyro, modules, FEW_SAMPLES);
+    long manySamplesBytes = measure(drive, gyro, modules, MANY_SAMPLES);
+
+    long extraSamples = (long) MEASURED_CYCLES * (MANY_SAMPLES - FEW_SAMPLES);
+    assertEquals(
+        0.0,
+        (double) (manySamplesBytes - fewSamplesBytes) / extraSamples,
+        0.5,
+        "bytes allocated per odometry sample");
+  }
+
+  /** Returns the bytes allocated by a warmed up run of drive loops with the given sample count. */
+  private static long measure(
+      Drive drive, StubGyroIO gyro, StubModuleIO[] modules, int samplesPerCycle) {
+    gyro.setSamplesPerCycle(samplesPerCycle);
+    for (StubModuleIO module : modules) {
+      module.setSamplesPerCycle(samplesPerCycle);
+    }
+    for (int i = 0; i < WARMUP_CYCLES; i++) {
+      drive.periodic();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long startBytes = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_CYCLES; i++) {
+      drive.periodic();
+    }
+    return threads.getThreadAllocatedBytes(threadId) - startBytes;
+  }
+}
@@ -0,0 +1,56 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Gyro IO that reports a fixed number of odometry samples every cycle while yawing slowly. Its
+ * arrays and angles are built once, so any allocation a benchmark or test measures comes from the
+ * code under test.
+ */
+public class StubGyroIO implements GyroIO {
+  private static final int ANGLE_STEPS = 3600;
+
+  private final boolean connected;
+  private double[] timestamps;
+  private Rotation2d[] yawPositions;
+  private final Rotation2d[] angles = new Rotation2d[ANGLE_STEPS];
+  private final double samplePeriodSeconds;
+  private double timestamp = 0.0;
+  private int angleStep = 0;
+
+  /**
+   * @param connected whether to report the gyro as connected, otherwise Drive falls back to the
+   *     kinematics for its rotation
+   * @param samplesPerCycle odometry samples to report each cycle
+   * @param samplePeriodSeconds time between odometry samples
+   */
+  public StubGyroIO(boolean connected, int samplesPerCycle, double samplePeriodSeconds) {
+    this.connected = connected;
+    this.samplePeriodSeconds = samplePeriodSeconds;
+    setSamplesPerCycle(samplesPerCycle);
+    for (int i = 0; i < ANGLE_STEPS; i++) {
+      angles[i] = Rotation2d.fromDegrees(i * 0.1);
+    }
+  }
+
+  /** Changes how many odometry samples are reported each cycle. Allocates the new arrays. */
+  public void setSamplesPerCycle(int samplesPerCycle) {
+    timestamps = new double[samplesPerCycle];
+    yawPositions = new Rotation2d[samplesPerCycle];
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamp += samplePeriodSeconds;
+      angleStep = (angleStep + 1) % ANGLE_STEPS;
+      timestamps[i] = timestamp;
+      yawPositions[i] = angles[angleStep];
+    }
+
+    inputs.connected = connected;
+    inputs.yawPosition = angles[angleStep];
+    inputs.odometryYawTimestamps = timestamps;
+    inputs.odometryYawPositions = yawPositions;
+  }
+}
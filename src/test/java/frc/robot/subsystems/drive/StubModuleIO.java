@@ -0,0 +1,63 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Module IO that reports a fixed number of odometry samples every cycle, as if the module were
+ * driving forward at a steady speed while turning slowly. Its arrays and angles are built once, so
+ * any allocation a benchmark or test measures comes from the code under test.
+ */
+public class StubModuleIO implements ModuleIO {
+  private static final int ANGLE_STEPS = 360;
+
+  private double[] timestamps;
+  private double[] drivePositionsRad;
+  private Rotation2d[] turnPositions;
+  private final Rotation2d[] angles = new Rotation2d[ANGLE_STEPS];
+  private final double samplePeriodSeconds;
+  private double timestamp = 0.0;
+  private double drivePositionRad = 0.0;
+  private int angleStep = 0;
+
+  /**
+   * @param samplesPerCycle odometry samples to report each cycle, 5 for 250 Hz odometry at 50 Hz
+   * @param samplePeriodSeconds time between odometry samples
+   */
+  public StubModuleIO(int samplesPerCycle, double samplePeriodSeconds) {
+    this.samplePeriodSeconds = samplePeriodSeconds;
+    setSamplesPerCycle(samplesPerCycle);
+    for (int i = 0; i < ANGLE_STEPS; i++) {
+      angles[i] = Rotation2d.fromDegrees(i);
+    }
+  }
+
+  /** Changes how many odometry samples are reported each cycle. Allocates the new arrays. */
+  public void setSamplesPerCycle(int samplesPerCycle) {
+    timestamps = new double[samplesPerCycle];
+    drivePositionsRad = new double[samplesPerCycle];
+    turnPositions = new Rotation2d[samplesPerCycle];
+  }
+
+  @Override
+  public void updateInputs(ModuleIOInputs inputs) {
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamp += samplePeriodSeconds;
+      drivePositionRad += 0.05;
+      angleStep = (angleStep + 1) % ANGLE_STEPS;
+      timestamps[i] = timestamp;
+      drivePositionsRad[i] = drivePositionRad;
+      turnPositions[i] = angles[angleStep];
+    }
+
+    inputs.driveConnected = true;
+    inputs.drivePositionRad = drivePositionRad;
+    inputs.driveVelocityRadPerSec = 0.05 / samplePeriodSeconds;
+    inputs.turnConnected = true;
+    inputs.turnEncoderConnected = true;
+    inputs.turnAbsolutePosition = angles[angleStep];
+    inputs.turnPosition = angles[angleStep];
+    inputs.odometryTimestamps = timestamps;
+    inputs.odometryDrivePositionsRad = drivePositionsRad;
+    inputs.odometryTurnPositions = turnPositions;
+  }
+}